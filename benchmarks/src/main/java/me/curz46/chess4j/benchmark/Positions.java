@@ -0,0 +1,26 @@
+package me.curz46.chess4j.benchmark;
+
+// the positions every benchmark is parameterised over
+final class Positions {
+
+    static final String OPENING = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private Positions() {
+    }
+
+    static String get(String name) {
+        switch(name) {
+            case "opening":
+                return OPENING;
+            case "middlegame":
+                return MIDDLEGAME;
+            case "endgame":
+                return ENDGAME;
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package me.curz46.chess4j.benchmark;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessPiece;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.PositionSnapshot;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveList;
+import me.curz46.chess4j.util.Vector2i;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static me.curz46.chess4j.bitboard.Bitboards.toVector;
+
+// throughput of the public rules API; run with -prof gc to see the allocation rate of each call
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private ChessBoard board;
+    private ChessState state;
+    private MoveList moves;
+
+    // a legal move in the position, in both representations
+    private int move;
+    private ChessPiece piece;
+    private Vector2i to;
+
+    @Setup
+    public void setup() {
+        state = Fen.parse(Positions.get(position));
+        board = new ChessBoard(state);
+        moves = new MoveList();
+        board.getLegalMoves(moves);
+        move = moves.get(0);
+        piece = state.getPiece(Move.getFrom(move));
+        to = toVector(Move.getTo(move));
+    }
+
+    @Benchmark
+    public void getPiece(Blackhole blackhole) {
+        for(int x = 0; x < 8; x++) {
+            for(int y = 0; y < 8; y++) {
+                blackhole.consume(state.getPiece(Vector2i.from(x, y)));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean verifyMove() {
+        return piece.verifyMove(state, to, true);
+    }
+
+    // the board caches its legal moves until the next move, so the benchmarks below play a move and take it back
+    // first: they measure generation on the first query after a move, plus the cost measured by doMove
+    @Benchmark
+    public Object getAllValidMoves() {
+        board.doMove(move);
+        board.undoMove();
+        return board.getAllValidMoves();
+    }
+
+    @Benchmark
+    public int getLegalMoves() {
+        board.doMove(move);
+        board.undoMove();
+        moves.clear();
+        board.getLegalMoves(moves);
+        return moves.size();
+    }
+
+    @Benchmark
+    public ChessBoard.GameStatus getStatus() {
+        board.doMove(move);
+        board.undoMove();
+        return board.getStatus();
+    }
+
+    // every later query in the same position, answered from the cache
+    @Benchmark
+    public int getLegalMovesCached() {
+        moves.clear();
+        board.getLegalMoves(moves);
+        return moves.size();
+    }
+
+    // doMove mutates the board, so each invocation takes the move back again to keep the position fixed
+    @Benchmark
+    public void doMove() {
+        board.doMove(move);
+        board.undoMove();
+    }
+
+    @Benchmark
+    public int getEvaluation() {
+        return board.getEvaluation();
+    }
+
+    @Benchmark
+    public ChessState copy() {
+        return state.copy();
+    }
+
+    @Benchmark
+    public PositionSnapshot snapshot() {
+        return PositionSnapshot.of(state);
+    }
+
+}
@@ -0,0 +1,118 @@
+package me.curz46.chess4j.benchmark;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.move.MoveList;
+import me.curz46.chess4j.session.GameSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// moves per second through a GameSessionManager, each thread playing random legal moves in random games, and batch
+// validations per submission; compare runs with -t 1, 2, 4, ... to see how throughput scales with cores
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    // games are taken back to their start once they reach this many plies, so they never run out of moves
+    private static final int MAX_PLIES = 200;
+
+    @Param({"10000"})
+    public int games;
+
+    private GameSessionManager manager;
+    private long[] ids;
+
+    // a batch of submissions for validateMoves: one legal move in each of BATCH_SIZE games, every third one corrupted
+    private long[] batchIds;
+    private int[] batchMoves;
+    private byte[] batchResults;
+
+    @Setup
+    public void setup() {
+        manager = new GameSessionManager();
+        ids = new long[games];
+        for(int i = 0; i < games; i++) {
+            ids[i] = manager.createGame();
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        MoveList moves = new MoveList();
+        batchIds = new long[BATCH_SIZE];
+        batchMoves = new int[BATCH_SIZE];
+        batchResults = new byte[BATCH_SIZE];
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            long id = ids[random.nextInt(ids.length)];
+            moves.clear();
+            manager.withBoard(id, board -> {
+                board.getLegalMoves(moves);
+                return null;
+            });
+            batchIds[i] = id;
+            batchMoves[i] = moves.get(random.nextInt(moves.size())) ^ (i % 3 == 0 ? 1 << 6 : 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+
+        private final MoveList moves = new MoveList();
+        private final SplittableRandom random = new SplittableRandom();
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] validateMoves() {
+        manager.validateMoves(batchIds, batchMoves, batchResults, false);
+        return batchResults;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] validateMovesParallel() {
+        manager.validateMoves(batchIds, batchMoves, batchResults, true);
+        return batchResults;
+    }
+
+    @Benchmark
+    public int doMove(Player player) {
+        long id = ids[player.random.nextInt(ids.length)];
+        return manager.withBoard(id, board -> {
+            player.moves.clear();
+            board.getLegalMoves(player.moves);
+            ChessState state = board.getState();
+            if(player.moves.isEmpty() || state.getUndoSize() >= MAX_PLIES) {
+                while(state.getUndoSize() > 0) {
+                    board.undoMove();
+                }
+                return 0;
+            }
+            board.doMove(player.moves.get(player.random.nextInt(player.moves.size())));
+            return 1;
+        });
+    }
+
+}
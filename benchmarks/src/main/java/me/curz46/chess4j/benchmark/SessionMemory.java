@@ -0,0 +1,51 @@
+package me.curz46.chess4j.benchmark;
+
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveList;
+import me.curz46.chess4j.session.GameSessionManager;
+
+import java.util.SplittableRandom;
+
+// heap used per game by a GameSessionManager, awake and hibernated:
+// java -cp benchmarks.jar me.curz46.chess4j.benchmark.SessionMemory [games] [plies]
+public class SessionMemory {
+
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        GameSessionManager manager = new GameSessionManager(GameSessionManager.DEFAULT_STRIPES, 0);
+        SplittableRandom random = new SplittableRandom(1);
+        MoveList moves = new MoveList();
+
+        long base = usedMemory();
+        for(int i = 0; i < games; i++) {
+            long id = manager.createGame();
+            for(int ply = 0; ply < plies; ply++) {
+                int move = manager.withBoard(id, board -> {
+                    moves.clear();
+                    board.getLegalMoves(moves);
+                    return moves.isEmpty() ? Move.NONE : moves.get(random.nextInt(moves.size()));
+                });
+                if(move == Move.NONE) break;
+                manager.doMove(id, move);
+            }
+        }
+        long awake = usedMemory();
+        manager.hibernateIdle();
+        long hibernated = usedMemory();
+        System.out.println(games + " games of " + plies + " plies");
+        System.out.println("awake: " + (awake - base) / games + " bytes per game");
+        System.out.println("hibernated: " + (hibernated - base) / games + " bytes per game");
+        manager.close();
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
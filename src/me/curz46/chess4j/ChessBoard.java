@@ -1,35 +1,48 @@
 package me.curz46.chess4j;
 
-import me.curz46.chess4j.ChessPiece.King;
-import me.curz46.chess4j.ChessPiece.Pawn;
-import me.curz46.chess4j.ChessPiece.Rook;
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.eval.Evaluator;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
 import me.curz46.chess4j.util.Tuple;
 import me.curz46.chess4j.util.Vector2i;
 
-import java.util.Optional;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static java.lang.Math.abs;
 import static me.curz46.chess4j.Player.BLACK;
 import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
 
 public class ChessBoard {
 
-    private static final Set<Vector2i> boardPositions = IntStream.range(0, 8)
-            .mapToObj(x -> IntStream.range(0, 8)
-                    .mapToObj(y -> Vector2i.from(x, y)))
-            .flatMap(Function.identity())
-            .collect(Collectors.toSet());
+    private static final Set<Vector2i> boardPositions = Collections.unmodifiableSet(IntStream.range(0, 64)
+            .mapToObj(Vector2i::of)
+            .collect(Collectors.toSet()));
     private final ChessState gameState;
-
-    // allows checking of the 50-move rule
-    private int fiftyMoveCounter = 0;
+    // every legal move of the position with key cachedKey, plus whether its side to move is in check; filled on the
+    // first query after a move and shared by all queries until the next one
+    private final MoveList legalMoves = new MoveList();
+    private boolean cacheValid;
+    private long cachedKey;
+    private boolean cachedCheck;
+    // republished after every doMove and undoMove, so other threads can read the position without locking or copying
+    // the state
+    private volatile PositionSnapshot snapshot;
+    // created on first use: its pawn cache is large next to the rest of a board
+    private Evaluator evaluator;
 
     public ChessBoard() {
-        gameState = new ChessState();
+        this(new ChessState());
+    }
+
+    public ChessBoard(ChessState state) {
+        gameState = state;
+        snapshot = PositionSnapshot.of(state);
     }
 
     public static Set<Vector2i> getBoardPositions() {
@@ -37,22 +50,48 @@ public class ChessBoard {
     }
 
     public void doMove(Player player, Vector2i from, Vector2i to) {
+        doMove(player, from, to, null);
+    }
+
+    // promotion may be null, in which case a Pawn reaching the last rank awaits promote
+    public void doMove(Player player, Vector2i from, Vector2i to, PieceType promotion) {
         if(getTurn() != player) throw new RuntimeException("It is not this player's turn.");
+        if(promotion != null && !Move.isPromotionType(promotion))
+            throw new RuntimeException("A Pawn cannot be promoted to " + promotion + ".");
+        if(gameState.getPiece(from).getPlayer() != player)
+            throw new RuntimeException("Attempted to move a ChessPiece not owned by this player.");
 
-        boolean isPawn = gameState.getPiece(from) instanceof Pawn;
-        int count = (int) gameState.getPieces().stream()
-                .filter(piece -> !piece.isTaken())
-                .count();
+        doMove(MoveGenerator.encode(gameState, square(from), square(to), promotion));
+    }
 
-        gameState.getPiece(from).doMove(gameState, to, true);
-        gameState.setTurn(gameState.getTurn() == WHITE ? BLACK : WHITE);
+    // plays a packed move (see Move) for the side to move; the state switches the turn and keeps the halfmove clock
+    public void doMove(int move) {
+        gameState.makeMove(move);
+        cacheValid = false;
+        snapshot = PositionSnapshot.of(gameState, move, snapshot);
+        // update status of each ChessPiece whenever piece is moved
+        gameState.getPieces().forEach(piece -> piece.update(gameState));
+    }
 
-        int newCount = (int) gameState.getPieces().stream()
-                .filter(piece -> !piece.isTaken())
-                .count();
+    // promotes the Pawn which the last doMove left on the last rank without a promotion, completing that move
+    public void promote(PieceType type) {
+        if(!Move.isPromotionType(type)) throw new RuntimeException("A Pawn cannot be promoted to " + type + ".");
+        ChessPiece pawn = gameState.getPieceAwaitsPromotion()
+                .orElseThrow(() -> new RuntimeException("There is no Pawn awaiting promotion."));
+        gameState.replacePiece(pawn, type.create(pawn.getPlayer(), pawn.getPosition(), true));
+        cacheValid = false;
+        // the snapshot of the unfinished move never becomes part of the history
+        snapshot = PositionSnapshot.of(gameState, gameState.getLastMove(), snapshot.getPrevious());
+        gameState.getPieces().forEach(piece -> piece.update(gameState));
+    }
 
-        if(!isPawn && count == newCount) fiftyMoveCounter++;
-        else fiftyMoveCounter = 0;
+    // takes back the last move played through doMove, dropping its snapshot so the history never outgrows the game
+    public void undoMove() {
+        if(snapshot.getPrevious() == null) throw new RuntimeException("There is no move to take back.");
+        gameState.unmakeMove();
+        cacheValid = false;
+        snapshot = snapshot.getPrevious();
+        gameState.getPieces().forEach(piece -> piece.update(gameState));
     }
 
     public boolean verifyMove(Vector2i from, Vector2i to) {
@@ -66,71 +105,66 @@ public class ChessBoard {
                 piece.verifyMove(gameState, to, true);
     }
 
+    // fills the given list with every legal move for the side to move, without allocating
+    public void getLegalMoves(MoveList moves) {
+        MoveList legal = getCachedMoves();
+        for(int i = 0; i < legal.size(); i++) {
+            moves.add(legal.get(i));
+        }
+    }
+
+    public void getLegalMoves(Vector2i from, MoveList moves) {
+        if(!isOnBoard(from)) return;
+        int square = square(from);
+        MoveList legal = getCachedMoves();
+        for(int i = 0; i < legal.size(); i++) {
+            if(Move.getFrom(legal.get(i)) == square) moves.add(legal.get(i));
+        }
+    }
+
+    // answered from the cached moves when there are any, otherwise by checking this one move alone
+    public boolean isLegal(int move) {
+        if(isCacheValid()) return legalMoves.contains(move);
+        return MoveGenerator.isPseudoLegal(gameState, move) && MoveGenerator.isLegal(gameState, move);
+    }
+
     public Set<Vector2i> getAllValidMoves() {
-        Player player = getTurn();
-        return gameState.getPieces().stream()
-                .filter(piece -> piece.getPlayer() == player)
-                .flatMap(piece -> getValidMoves(piece).stream())
-                .collect(Collectors.toSet());
+        MoveList legal = getCachedMoves();
+        Set<Vector2i> destinations = new HashSet<>();
+        for(int i = 0; i < legal.size(); i++) {
+            destinations.add(toVector(Move.getTo(legal.get(i))));
+        }
+        return destinations;
     }
 
     public Set<Vector2i> getValidMoves(ChessPiece piece) {
-        return boardPositions.stream()
-                .filter(vec -> verifyMove(piece, vec))
-                .collect(Collectors.toSet());
+        Set<Vector2i> destinations = new HashSet<>();
+        if(!isMovable(piece)) return destinations;
+        int square = square(piece.getPosition());
+        MoveList legal = getCachedMoves();
+        for(int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if(Move.getFrom(move) == square) destinations.add(toVector(Move.getTo(move)));
+        }
+        return destinations;
     }
 
     public Set<Vector2i> getValidMoves(Vector2i from) {
-        return boardPositions.stream()
-                .filter(vec -> verifyMove(from, vec))
-                .collect(Collectors.toSet());
+        return getValidMoves(gameState.getPiece(from));
     }
 
     public Set<Tuple<Vector2i, MoveMeta>> getValidMovesWithMeta(ChessPiece piece) {
-        System.out.println("getting ValidMovesWithMeta");
-        Set<Tuple<Vector2i, MoveMeta>> collect = getValidMoves(piece).stream()
-                .map(vec -> {
-                    MoveMeta meta;
-                    // determine if this move takes an enemy piece
-                    Player enemy = piece.getPlayer() == WHITE ? BLACK : WHITE;
-                    ChessPiece pieceAtPosition = gameState.getPiece(vec);
-                    if(pieceAtPosition.getPlayer() == enemy) {
-                        meta = MoveMeta.ATTACKS;
-                    } else {
-                        // determine if this move is 'special':
-                        if(piece.getPlayer() == pieceAtPosition.getPlayer()
-                                && (pieceAtPosition instanceof King && piece instanceof Rook
-                                || pieceAtPosition instanceof Rook && piece instanceof King)) {
-                            // 1. castling
-                            meta = MoveMeta.SPECIAL;
-                        } else if(pieceAtPosition == ChessPiece.NONE
-                                && piece instanceof Pawn
-                                && vec.getY() == (enemy == WHITE ? 7 : 0)) {
-                            // 2. pawn promotion
-                            meta = MoveMeta.SPECIAL;
-                        } else if(piece instanceof Pawn
-                                && abs(piece.getTransform(vec).getX()) == 1
-                                && pieceAtPosition == ChessPiece.NONE) {
-                            Vector2i enemyPosition = enemy == WHITE
-                                    ? vec.add(0, 1)
-                                    : vec.sub(0, 1);
-                            ChessPiece enemyPiece = gameState.getPiece(enemyPosition);
-                            if(enemyPiece.getPlayer() == enemy
-                                    && enemyPiece instanceof Pawn
-                                    && ((Pawn) enemyPiece).hasJustMovedTwo()) {
-                                // 3. en passant
-                                meta = MoveMeta.SPECIAL;
-                            } else {
-                                meta = MoveMeta.DEFAULT;
-                            }
-                        } else {
-                            meta = MoveMeta.DEFAULT;
-                        }
-                    }
-                    return Tuple.of(vec, meta);
-                })
-                .collect(Collectors.toSet());
-        System.out.println("done!");
+        Set<Tuple<Vector2i, MoveMeta>> collect = new HashSet<>();
+        if(!isMovable(piece)) return collect;
+        int square = square(piece.getPosition());
+        MoveList legal = getCachedMoves();
+        for(int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if(Move.getFrom(move) != square) continue;
+            // the four promotions share a destination, so report it once
+            if(Move.isPromotion(move) && Move.getPromotion(move) != PieceType.QUEEN) continue;
+            collect.add(Tuple.of(toVector(Move.getTo(move)), Move.getMeta(move)));
+        }
         return collect;
     }
 
@@ -142,14 +176,22 @@ public class ChessBoard {
         return gameState.getTurn();
     }
 
+    // results that end the game take precedence over check, which takes precedence over draws that may be claimed
     public GameStatus getStatus() {
-        if(isStalemate()) return GameStatus.STALEMATE;
-        if(inCheck()) {
-            if(getAllValidMoves().isEmpty()) {
-                return gameState.getTurn() == WHITE ? GameStatus.WINNER_BLACK : GameStatus.WINNER_WHITE;
-            }
-            return GameStatus.CHECK;
-        }
+        boolean check = inCheck();
+        // a cached move list answers this for free, otherwise the search stops at the first legal move
+        boolean noMoves = isCacheValid() ? legalMoves.isEmpty() : !MoveGenerator.hasLegalMove(gameState);
+        if(noMoves && !check) return GameStatus.STALEMATE;
+        if(noMoves) return gameState.getTurn() == WHITE ? GameStatus.WINNER_BLACK : GameStatus.WINNER_WHITE;
+        if(gameState.isInsufficientMaterial()) return GameStatus.INSUFFICIENT_MATERIAL;
+        int halfmoveClock = gameState.getHalfmoveClock();
+        if(halfmoveClock >= 150) return GameStatus.SEVENTY_FIVE_MOVE_RULE;
+        // repetitions depend on the game history rather than the position, so they are not cached
+        int repetitions = getRepetitionCount();
+        if(repetitions >= 5) return GameStatus.FIVEFOLD_REPETITION;
+        if(check) return GameStatus.CHECK;
+        if(repetitions >= 3) return GameStatus.THREEFOLD_REPETITION;
+        if(halfmoveClock >= 100) return GameStatus.FIFTY_MOVE_RULE;
         return GameStatus.PLAYING;
     }
 
@@ -157,23 +199,64 @@ public class ChessBoard {
         return gameState;
     }
 
+    // the position after the last doMove or undoMove, with the game's history behind it; safe to call from any
+    // thread. moves must be taken back with undoMove and pawns promoted with promote rather than on the state, or the
+    // history goes out of step
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 64-bit Zobrist key of the current position, equal for any two boards in the same position
+    public long getPositionKey() {
+        return gameState.getKey();
+    }
+
+    // static evaluation of the current position in centipawns, positive when White stands better
+    public int getEvaluation() {
+        if(evaluator == null) evaluator = new Evaluator();
+        return evaluator.evaluateForWhite(gameState);
+    }
+
     public boolean canCallDraw() {
-        return fiftyMoveCounter >= 100;
+        return gameState.getHalfmoveClock() >= 100;
+    }
+
+    // a draw may be claimed under the fifty-move rule or once the position has occurred three times
+    public boolean canClaimDraw() {
+        return canCallDraw() || getRepetitionCount() >= 3;
     }
 
-    private boolean isStalemate() {
-        return !inCheck() && getAllValidMoves().isEmpty();
+    // how many times the current position has occurred in this game, counting the current occurrence
+    public int getRepetitionCount() {
+        return gameState.getRepetitionCount();
+    }
+
+    // the key check also catches moves made on the state directly rather than through doMove
+    private MoveList getCachedMoves() {
+        if(!isCacheValid()) {
+            cachedCheck = gameState.isInCheck();
+            legalMoves.clear();
+            MoveGenerator.generateLegal(gameState, legalMoves);
+            cachedKey = gameState.getKey();
+            cacheValid = true;
+        }
+        return legalMoves;
+    }
+
+    private boolean isCacheValid() {
+        return cacheValid && cachedKey == gameState.getKey();
+    }
+
+    private boolean isMovable(ChessPiece piece) {
+        return piece != ChessPiece.NONE && piece.getPlayer() == getTurn()
+                && gameState.getPiece(piece.getPosition()) == piece;
     }
 
     private boolean inCheck() {
-        Player player = getTurn();
-        Optional<ChessPiece> king = gameState.getPieces(King.class).stream()
-                .filter(piece -> piece.getPlayer() == player)
-                .findAny();
-        if(!king.isPresent()) throw new RuntimeException("Somehow, this player doesn't have a King.");
-        return gameState.getPieces().stream()
-                .filter(piece -> piece.getPlayer() != player)
-                .anyMatch(piece -> piece.verifyMove(gameState, king.get().getPosition(), true));
+        if(gameState.getBitboard(getTurn(), PieceType.KING) == 0) {
+            throw new RuntimeException("Somehow, this player doesn't have a King.");
+        }
+        return isCacheValid() ? cachedCheck : gameState.isInCheck();
     }
 
     public enum GameStatus {
@@ -182,7 +265,17 @@ public class ChessBoard {
         CHECK,
         STALEMATE,
         WINNER_WHITE,
-        WINNER_BLACK
+        WINNER_BLACK,
+        // the position has occurred three times; either player may claim a draw, otherwise play continues
+        THREEFOLD_REPETITION,
+        // the position has occurred five times, which ends the game as a draw
+        FIVEFOLD_REPETITION,
+        // neither side has the material left to checkmate, which ends the game as a draw
+        INSUFFICIENT_MATERIAL,
+        // fifty moves by each side without a capture or pawn move; either player may claim a draw
+        FIFTY_MOVE_RULE,
+        // seventy-five moves by each side without a capture or pawn move, which ends the game as a draw
+        SEVENTY_FIVE_MOVE_RULE
 
     }
 
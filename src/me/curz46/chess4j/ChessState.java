@@ -1,26 +1,99 @@
 package me.curz46.chess4j;
 
 import me.curz46.chess4j.ChessPiece.*;
+import me.curz46.chess4j.bitboard.Attacks;
+import me.curz46.chess4j.eval.PieceSquareTables;
+import me.curz46.chess4j.move.Move;
 import me.curz46.chess4j.util.Vector2i;
 
-import java.util.Collections;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static me.curz46.chess4j.Player.BLACK;
 import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
 
 public class ChessState {
 
-    private Set<ChessPiece> pieces;
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // undo info packs castling rights (4 bits), en passant square + 1 (7 bits), the halfmove clock and these flags
+    private static final int UNDO_MOVED = 1 << 30;
+    private static final int UNDO_BLACK_TURN = 1 << 31;
+
+    private static final int UNDO_INITIAL_SIZE = 64;
+
+    // castling rights which survive a piece moving from or to each square
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASKS[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASKS[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[63] &= ~BLACK_KINGSIDE;
+    }
+
+    // one bitboard per (player, type), indexed by bitboardIndex
+    private final long[] bitboards = new long[12];
+    private final long[] occupancy = new long[2];
+    // mailbox, indexed by square; null where the square is empty
+    private final ChessPiece[] board = new ChessPiece[64];
     private Player turn = WHITE;
 
+    private int castlingRights;
+    // the square a pawn skipped over with its last double step, or -1
+    private int enPassantSquare = -1;
+    // half-moves since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock;
+    // starts at 1 and goes up after each of Black's moves
+    private int fullmoveNumber = 1;
+    // Zobrist key of the position, kept up to date by every mutation
+    private long key;
+    // Zobrist key over pawns and Kings only, which change far less often than the position as a whole
+    private long pawnKey;
+    // material plus piece-square sums from White's point of view and the game phase, kept up to date like the key
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+    // squares attacked by each side (Player ordinal); only valid while attacksValid is set, since a position's maps
+    // are computed the first time they are asked for and then carried on the undo stack. every change to the board
+    // goes through placePiece, removePiece or relocate, which clear attacksValid
+    private final long[] attacks = new long[2];
+    private boolean attacksValid;
+
     private ChessPiece pieceAwaitsPromotion;
 
+    // undo stack, one entry per move made and not yet unmade. allocated on the first move, so positions which are
+    // only parsed or inspected stay small
+    private int undoSize;
+    private int[] undoMoves = new int[0];
+    private int[] undoInfo = new int[0];
+    private ChessPiece[] undoCaptured = new ChessPiece[0];
+    private ChessPiece[] undoPromoted = new ChessPiece[0];
+    private long[] undoKeys = new long[0];
+    // attack maps of the position before each move, two per entry; undoAttacksValid says whether they were computed
+    private long[] undoAttacks = new long[0];
+    private boolean[] undoAttacksValid = new boolean[0];
+    // keys of positions before the first undo entry, oldest first; copies inherit them so that repetitions of
+    // earlier positions are still seen, even though those moves cannot be taken back
+    private long[] priorKeys = new long[0];
+
     public ChessState(Set<ChessPiece> pieces) {
-        this.pieces = pieces;
+        pieces.forEach(this::placePiece);
+        setCastlingRights(deriveCastlingRights(WHITE, 0, WHITE_KINGSIDE, WHITE_QUEENSIDE)
+                | deriveCastlingRights(BLACK, 56, BLACK_KINGSIDE, BLACK_QUEENSIDE));
     }
 
     public ChessState() {
@@ -28,11 +101,23 @@ public class ChessState {
     }
 
     public ChessState copy() {
-        return new ChessState(
-                pieces.stream()
+        ChessState copy = new ChessState(
+                getPieces().stream()
                         .map(ChessPiece::copy)
                         .collect(Collectors.toSet())
         );
+        copy.setTurn(turn);
+        copy.setCastlingRights(castlingRights);
+        copy.setEnPassantSquare(enPassantSquare);
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        // only positions since the last capture or pawn move can ever repeat
+        int length = Math.min(halfmoveClock, undoSize + priorKeys.length);
+        copy.priorKeys = new long[length];
+        for(int distance = 1; distance <= length; distance++) {
+            copy.priorKeys[length - distance] = getPreviousKey(distance);
+        }
+        return copy;
     }
 
     public ChessPiece getEmptyPiece() {
@@ -50,37 +135,421 @@ public class ChessState {
     }
 
     public void replacePiece(ChessPiece piece, ChessPiece newPiece) {
-        if(piece.getPosition() != newPiece.getPosition()) {
+        if(!piece.getPosition().equals(newPiece.getPosition())) {
             // not necessary but good check for original purpose - pawn promotion
             throw new RuntimeException("Replacing a ChessPiece requires the new piece to have the same position.");
         }
 
-        pieces.remove(piece);
-        pieces.add(newPiece);
+        removePiece(piece);
+        placePiece(newPiece);
+        if(pieceAwaitsPromotion == piece) {
+            pieceAwaitsPromotion = null;
+            // the promotion completes the last move, so it is recorded there: unmakeMove then brings the pawn back,
+            // and the game's moves read as an ordinary promotion
+            int ply = undoSize - 1;
+            if(ply >= 0 && Move.getTo(undoMoves[ply]) == square(piece.getPosition())) {
+                undoPromoted[ply] = piece;
+                int move = undoMoves[ply];
+                if(Move.isPromotionType(newPiece.getType())) {
+                    undoMoves[ply] = Move.promotion(Move.getFrom(move), Move.getTo(move), newPiece.getType(),
+                            Move.isCapture(move));
+                }
+            }
+        }
     }
 
     public void takePiece(ChessPiece piece) {
-        if(piece == getEmptyPiece() || !pieces.contains(piece))
+        if(piece == getEmptyPiece() || !hasPiece(piece))
             throw new RuntimeException("Attempted to take an invalid ChessPiece. (NONE|!contains)");
-        pieces.remove(piece);
+        setCastlingRights(castlingRights & CASTLING_MASKS[square(piece.getPosition())]);
+        removePiece(piece);
         piece.setTaken(true);
     }
 
+    // plays a (pseudo-legal) move in place, including captures, en passant, castling and promotion, and pushes
+    // everything needed to take it back onto the undo stack. a pawn reaching the last rank without a promotion flag
+    // is left to await promotion through replacePiece, as before
+    public void makeMove(int move) {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        ChessPiece piece = board[from];
+        if(piece == null) throw new RuntimeException("Attempted to move from an empty square.");
+        if(from == to || board[to] != null && board[to].getPlayer() == piece.getPlayer())
+            throw new RuntimeException("Attempted to move a ChessPiece onto an ally or itself.");
+
+        if(undoSize == undoMoves.length) growUndoStack();
+        int ply = undoSize++;
+        undoMoves[ply] = move;
+        undoKeys[ply] = key;
+        undoAttacks[ply << 1] = attacks[0];
+        undoAttacks[ply << 1 | 1] = attacks[1];
+        undoAttacksValid[ply] = attacksValid;
+        attacksValid = false;
+        undoInfo[ply] = castlingRights
+                | (enPassantSquare + 1) << 4
+                | halfmoveClock << 11
+                | (piece.hasMoved() ? UNDO_MOVED : 0)
+                | (turn == BLACK ? UNDO_BLACK_TURN : 0);
+
+        int capturedSquare = Move.isEnPassant(move) ? to + (piece.getPlayer() == WHITE ? -8 : 8) : to;
+        ChessPiece captured = board[capturedSquare];
+        undoCaptured[ply] = captured;
+        if(captured != null) {
+            removePiece(captured);
+            captured.setTaken(true);
+        }
+
+        relocate(piece, from, to);
+        setCastlingRights(castlingRights & CASTLING_MASKS[from] & CASTLING_MASKS[to]);
+        piece.setMoved(true);
+
+        if(Move.isCastle(move)) {
+            // the Rook in the corner on the side the King moved towards jumps to the King's other side
+            int corner = to > from ? from + 3 : from - 4;
+            ChessPiece rook = board[corner];
+            if(rook == null) throw new RuntimeException("Attempted to castle without a Rook.");
+            relocate(rook, corner, (from + to) / 2);
+            rook.setMoved(true);
+        }
+
+        boolean isPawn = piece.getType() == PieceType.PAWN;
+        // the en passant square is only recorded when an enemy pawn could actually use it, so that it never
+        // distinguishes otherwise identical positions
+        int skipped = (from + to) / 2;
+        setEnPassantSquare(Move.isDoublePush(move)
+                && (Attacks.pawn(piece.getPlayer().ordinal(), skipped)
+                & bitboards[(piece.getPlayer() == WHITE ? 6 : 0) + PieceType.PAWN.ordinal()]) != 0 ? skipped : -1);
+        halfmoveClock = isPawn || captured != null ? 0 : halfmoveClock + 1;
+        if(piece.getPlayer() == BLACK) fullmoveNumber++;
+
+        undoPromoted[ply] = null;
+        if(Move.isPromotion(move)) {
+            PieceType promotion = Move.getPromotion(move);
+            removePiece(piece);
+            placePiece(promotion.create(piece.getPlayer(), piece.getPosition(), true));
+            undoPromoted[ply] = piece;
+        } else if(isPawn && (to >>> 3 == 7 || to >>> 3 == 0)) {
+            pieceAwaitsPromotion = piece;
+        }
+
+        setTurn(piece.getPlayer() == WHITE ? BLACK : WHITE);
+    }
+
+    public void unmakeMove() {
+        if(undoSize == 0) throw new RuntimeException("There is no move to take back.");
+        int ply = --undoSize;
+        int move = undoMoves[ply];
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int info = undoInfo[ply];
+
+        ChessPiece piece = board[to];
+        if(undoPromoted[ply] != null) {
+            removePiece(piece);
+            piece = undoPromoted[ply];
+            placePiece(piece);
+            undoPromoted[ply] = null;
+        }
+        if(pieceAwaitsPromotion == piece) pieceAwaitsPromotion = null;
+
+        relocate(piece, to, from);
+        piece.setMoved((info & UNDO_MOVED) != 0);
+
+        if(Move.isCastle(move)) {
+            ChessPiece rook = board[(from + to) / 2];
+            relocate(rook, (from + to) / 2, to > from ? from + 3 : from - 4);
+            rook.setMoved(false);
+        }
+
+        ChessPiece captured = undoCaptured[ply];
+        if(captured != null) {
+            // the captured piece still knows its square, which differs from 'to' for en passant
+            placePiece(captured);
+            captured.setTaken(false);
+            undoCaptured[ply] = null;
+        }
+
+        castlingRights = info & 15;
+        enPassantSquare = (info >>> 4 & 127) - 1;
+        halfmoveClock = info >>> 11 & 0x7FFFF;
+        turn = (info & UNDO_BLACK_TURN) != 0 ? BLACK : WHITE;
+        if(piece.getPlayer() == BLACK) fullmoveNumber--;
+        key = undoKeys[ply];
+        attacks[0] = undoAttacks[ply << 1];
+        attacks[1] = undoAttacks[ply << 1 | 1];
+        attacksValid = undoAttacksValid[ply];
+    }
+
+    // the move which the next unmakeMove will take back, or Move.NONE
+    public int getLastMove() {
+        return undoSize == 0 ? Move.NONE : undoMoves[undoSize - 1];
+    }
+
+    public int getUndoSize() {
+        return undoSize;
+    }
+
+    // the move played ply plies after this state was created, for plies below getUndoSize
+    public int getMove(int ply) {
+        if(ply < 0 || ply >= undoSize) throw new RuntimeException("No move at ply " + ply + ".");
+        return undoMoves[ply];
+    }
+
     public ChessPiece getPiece(Vector2i position) {
-        return pieces.stream()
-                .filter(p -> p.getPosition().equals(position))
-                .findFirst()
-                .orElse(ChessPiece.NONE);
+        if(!isOnBoard(position)) return ChessPiece.NONE;
+        return getPiece(square(position));
+    }
+
+    public ChessPiece getPiece(int square) {
+        ChessPiece piece = board[square];
+        return piece == null ? ChessPiece.NONE : piece;
+    }
+
+    public boolean isOccupied(Vector2i position) {
+        return isOnBoard(position) && contains(getOccupancy(), square(position));
     }
 
     public Set<ChessPiece> getPieces() {
-        return Collections.unmodifiableSet(pieces);
+        return new PieceSet(null);
     }
 
     public Set<ChessPiece> getPieces(Class<? extends ChessPiece> type) {
-        return pieces.stream()
-                .filter(p -> p.getClass().equals(type))
-                .collect(Collectors.toUnmodifiableSet());
+        return new PieceSet(PieceType.of(type));
+    }
+
+    public long getBitboard(Player player, PieceType type) {
+        if(player == Player.NONE || type == PieceType.NONE) return EMPTY;
+        return bitboards[player.ordinal() * 6 + type.ordinal()];
+    }
+
+    public long getOccupancy(Player player) {
+        if(player == Player.NONE) return ~getOccupancy();
+        return occupancy[player.ordinal()];
+    }
+
+    public long getOccupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    // every square attacked by the given player's pieces, whether or not the attacker is pinned
+    public long getAttacks(Player player) {
+        if(player == Player.NONE) return EMPTY;
+        if(!attacksValid) {
+            attacks[0] = computeAttacks(0);
+            attacks[1] = computeAttacks(1);
+            attacksValid = true;
+        }
+        return attacks[player.ordinal()];
+    }
+
+    public boolean isAttacked(int square, Player by) {
+        return (getAttacks(by) & bit(square)) != 0;
+    }
+
+    // whether the side to move's King is attacked
+    public boolean isInCheck() {
+        return (bitboards[turn.ordinal() * 6 + PieceType.KING.ordinal()] & getAttacks(turn == WHITE ? BLACK : WHITE)) != 0;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    void setCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    void setEnPassantSquare(int enPassantSquare) {
+        key ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    // how many times the current position occurs in the move history, counting the current occurrence. the undo
+    // stack holds the key before every move, and only positions since the last capture or pawn move (bounded by the
+    // halfmove clock) with the same side to move can repeat, so the scan is at most fifty entries long
+    public int getRepetitionCount() {
+        int count = 1;
+        int limit = Math.min(halfmoveClock, undoSize + priorKeys.length);
+        for(int distance = 2; distance <= limit; distance += 2) {
+            if(getPreviousKey(distance) == key) count++;
+        }
+        return count;
+    }
+
+    // neither side can ever checkmate: bare Kings, a single minor piece, or only Bishops, all on one colour of square
+    public boolean isInsufficientMaterial() {
+        long heavy = EMPTY;
+        long knights = EMPTY;
+        long bishops = EMPTY;
+        for(int player = 0; player < 2; player++) {
+            heavy |= bitboards[player * 6 + PieceType.PAWN.ordinal()] | bitboards[player * 6 + PieceType.ROOK.ordinal()]
+                    | bitboards[player * 6 + PieceType.QUEEN.ordinal()];
+            knights |= bitboards[player * 6 + PieceType.KNIGHT.ordinal()];
+            bishops |= bitboards[player * 6 + PieceType.BISHOP.ordinal()];
+        }
+        if(heavy != 0) return false;
+        if(count(knights | bishops) <= 1) return true;
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    // between 0 (pawns and Kings only) and PieceSquareTables.MAX_PHASE, or more after promotions
+    public int getPhase() {
+        return phase;
+    }
+
+    // the key of the position the given number of plies ago
+    private long getPreviousKey(int distance) {
+        return distance <= undoSize ? undoKeys[undoSize - distance] : priorKeys[priorKeys.length - distance + undoSize];
+    }
+
+    void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    private int deriveCastlingRights(Player player, int home, int kingside, int queenside) {
+        ChessPiece king = board[home + 4];
+        if(!(king instanceof King) || king.getPlayer() != player || king.hasMoved()) return 0;
+        int rights = 0;
+        if(isUnmovedRook(board[home + 7], player)) rights |= kingside;
+        if(isUnmovedRook(board[home], player)) rights |= queenside;
+        return rights;
+    }
+
+    private static boolean isUnmovedRook(ChessPiece piece, Player player) {
+        return piece instanceof Rook && piece.getPlayer() == player && !piece.hasMoved();
+    }
+
+    private boolean hasPiece(ChessPiece piece) {
+        return isOnBoard(piece.getPosition()) && board[square(piece.getPosition())] == piece;
+    }
+
+    void placePiece(ChessPiece piece) {
+        if(piece.getPlayer() == Player.NONE || piece.getType() == PieceType.NONE)
+            throw new RuntimeException("Attempted to place an invalid ChessPiece. (NONE)");
+        if(!isOnBoard(piece.getPosition()))
+            throw new RuntimeException("Attempted to place a ChessPiece off the board.");
+        int square = square(piece.getPosition());
+        if(board[square] != null)
+            throw new RuntimeException("Attempted to place a ChessPiece onto an occupied square.");
+
+        int index = bitboardIndex(piece);
+        bitboards[index] |= bit(square);
+        occupancy[piece.getPlayer().ordinal()] |= bit(square);
+        key ^= Zobrist.piece(index, square);
+        if(isPawnOrKing(index)) pawnKey ^= Zobrist.piece(index, square);
+        middlegameScore += PieceSquareTables.middlegame(index, square);
+        endgameScore += PieceSquareTables.endgame(index, square);
+        phase += PieceSquareTables.phase(index);
+        board[square] = piece;
+        attacksValid = false;
+    }
+
+    // moves a piece between two squares, keeping the bitboards, mailbox and the piece's own position in sync
+    private void relocate(ChessPiece piece, int from, int to) {
+        long fromToBits = bit(from) | bit(to);
+        int index = bitboardIndex(piece);
+        bitboards[index] ^= fromToBits;
+        occupancy[piece.getPlayer().ordinal()] ^= fromToBits;
+        key ^= Zobrist.piece(index, from) ^ Zobrist.piece(index, to);
+        if(isPawnOrKing(index)) pawnKey ^= Zobrist.piece(index, from) ^ Zobrist.piece(index, to);
+        middlegameScore += PieceSquareTables.middlegame(index, to) - PieceSquareTables.middlegame(index, from);
+        endgameScore += PieceSquareTables.endgame(index, to) - PieceSquareTables.endgame(index, from);
+        board[from] = null;
+        board[to] = piece;
+        piece.setPosition(toVector(to));
+        attacksValid = false;
+    }
+
+    private long computeAttacks(int side) {
+        int base = side * 6;
+        long occupied = getOccupancy();
+        long pawns = bitboards[base + PieceType.PAWN.ordinal()];
+        long result = side == 0
+                ? (pawns & ~FILE_A) << 7 | (pawns & ~FILE_H) << 9
+                : (pawns & ~FILE_A) >>> 9 | (pawns & ~FILE_H) >>> 7;
+        for(long knights = bitboards[base + PieceType.KNIGHT.ordinal()]; knights != 0; knights = popLowest(knights)) {
+            result |= Attacks.knight(lowest(knights));
+        }
+        long queens = bitboards[base + PieceType.QUEEN.ordinal()];
+        for(long diagonal = bitboards[base + PieceType.BISHOP.ordinal()] | queens;
+            diagonal != 0; diagonal = popLowest(diagonal)) {
+            result |= Attacks.bishop(lowest(diagonal), occupied);
+        }
+        for(long straight = bitboards[base + PieceType.ROOK.ordinal()] | queens;
+            straight != 0; straight = popLowest(straight)) {
+            result |= Attacks.rook(lowest(straight), occupied);
+        }
+        for(long kings = bitboards[base + PieceType.KING.ordinal()]; kings != 0; kings = popLowest(kings)) {
+            result |= Attacks.king(lowest(kings));
+        }
+        return result;
+    }
+
+    private void growUndoStack() {
+        int length = Math.max(undoMoves.length * 2, UNDO_INITIAL_SIZE);
+        undoMoves = Arrays.copyOf(undoMoves, length);
+        undoInfo = Arrays.copyOf(undoInfo, length);
+        undoCaptured = Arrays.copyOf(undoCaptured, length);
+        undoPromoted = Arrays.copyOf(undoPromoted, length);
+        undoKeys = Arrays.copyOf(undoKeys, length);
+        undoAttacks = Arrays.copyOf(undoAttacks, length * 2);
+        undoAttacksValid = Arrays.copyOf(undoAttacksValid, length);
+    }
+
+    private void removePiece(ChessPiece piece) {
+        int square = square(piece.getPosition());
+        int index = bitboardIndex(piece);
+        bitboards[index] &= ~bit(square);
+        occupancy[piece.getPlayer().ordinal()] &= ~bit(square);
+        key ^= Zobrist.piece(index, square);
+        if(isPawnOrKing(index)) pawnKey ^= Zobrist.piece(index, square);
+        middlegameScore -= PieceSquareTables.middlegame(index, square);
+        endgameScore -= PieceSquareTables.endgame(index, square);
+        phase -= PieceSquareTables.phase(index);
+        board[square] = null;
+        attacksValid = false;
+    }
+
+    private static boolean isPawnOrKing(int index) {
+        int type = index % 6;
+        return type == PieceType.PAWN.ordinal() || type == PieceType.KING.ordinal();
+    }
+
+    private static int bitboardIndex(ChessPiece piece) {
+        return piece.getPlayer().ordinal() * 6 + piece.getType().ordinal();
     }
 
     private static Set<ChessPiece> generatePieces() {
@@ -116,6 +585,7 @@ public class ChessState {
     }
 
     public void setTurn(Player player) {
+        if((turn == BLACK) != (player == BLACK)) key ^= Zobrist.blackToMove();
         turn = player;
     }
 
@@ -123,4 +593,53 @@ public class ChessState {
         return turn;
     }
 
+    // unmodifiable, live view of the pieces on the board (optionally of one type), read straight from the bitboards
+    private final class PieceSet extends AbstractSet<ChessPiece> {
+
+        private final PieceType type;
+
+        private PieceSet(PieceType type) {
+            this.type = type;
+        }
+
+        private long mask() {
+            if(type == null) return getOccupancy();
+            if(type == PieceType.NONE) return EMPTY;
+            return bitboards[type.ordinal()] | bitboards[6 + type.ordinal()];
+        }
+
+        @Override
+        public Iterator<ChessPiece> iterator() {
+            return new Iterator<>() {
+                private long remaining = mask();
+
+                @Override
+                public boolean hasNext() {
+                    return remaining != 0;
+                }
+
+                @Override
+                public ChessPiece next() {
+                    if(remaining == 0) throw new NoSuchElementException();
+                    ChessPiece piece = board[lowest(remaining)];
+                    remaining = popLowest(remaining);
+                    return piece;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return count(mask());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if(!(o instanceof ChessPiece)) return false;
+            ChessPiece piece = (ChessPiece) o;
+            return hasPiece(piece) && (mask() & bit(square(piece.getPosition()))) != 0;
+        }
+
+    }
+
 }
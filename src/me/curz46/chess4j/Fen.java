@@ -0,0 +1,195 @@
+package me.curz46.chess4j;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.bitboard.Attacks;
+
+import java.util.Collections;
+
+import static me.curz46.chess4j.Player.BLACK;
+import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// Forsyth-Edwards Notation, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". parsing walks the
+// characters once, without splitting or regular expressions, so bulk imports only pay for the pieces they create
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "pnbrqk";
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private Fen() {
+    }
+
+    // the halfmove and fullmove fields may be left out, in which case they default to 0 and 1
+    public static ChessState parse(CharSequence fen) {
+        int length = fen.length();
+        ChessState state = new ChessState(Collections.emptySet());
+
+        int i = skipSpaces(fen, 0);
+        int x = 0;
+        int y = 7;
+        for(; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if(c == '/') {
+                if(x != 8 || y == 0) throw invalid("piece placement", fen);
+                x = 0;
+                y--;
+            } else if(c >= '1' && c <= '8') {
+                x += c - '0';
+                if(x > 8) throw invalid("piece placement", fen);
+            } else {
+                int type = PIECE_CHARS.indexOf(c | 0x20);
+                if(type == -1 || x > 7) throw invalid("piece placement", fen);
+                Player player = c < 'a' ? WHITE : BLACK;
+                state.placePiece(PIECE_TYPES[type].create(player, toVector(square(x, y)), false));
+                x++;
+            }
+        }
+        if(x != 8 || y != 0) throw invalid("piece placement", fen);
+        // anything else could not arise in a game, and some of it (no King, dozens of Queens) breaks move generation
+        for(Player player : new Player[] {WHITE, BLACK}) {
+            long pawns = state.getBitboard(player, PieceType.PAWN);
+            if(count(state.getBitboard(player, PieceType.KING)) != 1 || count(state.getOccupancy(player)) > 16
+                    || count(pawns) > 8 || (pawns & (RANK_1 | RANK_8)) != 0) {
+                throw invalid("piece placement", fen);
+            }
+        }
+
+        i = skipSpaces(fen, i);
+        if(i + 1 < length && fen.charAt(i + 1) != ' ') throw invalid("side to move", fen);
+        char side = i < length ? fen.charAt(i++) : ' ';
+        if(side == 'w') state.setTurn(WHITE);
+        else if(side == 'b') state.setTurn(BLACK);
+        else throw invalid("side to move", fen);
+
+        i = skipSpaces(fen, i);
+        if(i == length) throw invalid("castling rights", fen);
+        int rights = 0;
+        for(; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if(c == 'K') rights |= ChessState.WHITE_KINGSIDE;
+            else if(c == 'Q') rights |= ChessState.WHITE_QUEENSIDE;
+            else if(c == 'k') rights |= ChessState.BLACK_KINGSIDE;
+            else if(c == 'q') rights |= ChessState.BLACK_QUEENSIDE;
+            else if(c != '-') throw invalid("castling rights", fen);
+        }
+        // rights whose King or Rook is not on its starting square are dropped, as they could never be used
+        state.setCastlingRights(rights & possibleCastlingRights(state));
+
+        i = skipSpaces(fen, i);
+        if(i == length) throw invalid("en passant square", fen);
+        if(fen.charAt(i) == '-') {
+            i++;
+        } else {
+            if(i + 1 >= length) throw invalid("en passant square", fen);
+            int file = fen.charAt(i) - 'a';
+            int rank = fen.charAt(i + 1) - '1';
+            if(!isOnBoard(file, rank) || rank != (state.getTurn() == WHITE ? 5 : 2))
+                throw invalid("en passant square", fen);
+            i += 2;
+            // the square a pawn just skipped over: empty, as is the one it left, with the pawn just past it
+            int square = square(file, rank);
+            Player mover = state.getTurn();
+            int forward = mover == WHITE ? 8 : -8;
+            long occupancy = state.getOccupancy();
+            if(contains(occupancy, square) || contains(occupancy, square + forward)
+                    || !contains(state.getBitboard(mover == WHITE ? BLACK : WHITE, PieceType.PAWN), square - forward)) {
+                throw invalid("en passant square", fen);
+            }
+            // recorded only when a pawn of the side to move can take, as makeMove does, so keys agree
+            if((Attacks.pawn(mover == WHITE ? 1 : 0, square) & state.getBitboard(mover, PieceType.PAWN)) != 0) {
+                state.setEnPassantSquare(square);
+            }
+        }
+        if(i < length && fen.charAt(i) != ' ') throw invalid("en passant square", fen);
+
+        i = skipSpaces(fen, i);
+        if(i < length) {
+            int start = i;
+            int halfmove = 0;
+            for(; i < length && fen.charAt(i) != ' '; i++) {
+                halfmove = digit(fen, i, halfmove, "halfmove clock");
+            }
+            state.setHalfmoveClock(halfmove);
+            i = skipSpaces(fen, i);
+            if(i < length) {
+                int fullmove = 0;
+                for(; i < length && fen.charAt(i) != ' '; i++) {
+                    fullmove = digit(fen, i, fullmove, "fullmove number");
+                }
+                if(fullmove == 0) throw invalid("fullmove number", fen);
+                state.setFullmoveNumber(fullmove);
+            }
+            if(skipSpaces(fen, i) != length || i == start) throw invalid("move counters", fen);
+        }
+        return state;
+    }
+
+    public static String toFen(ChessState state) {
+        StringBuilder builder = new StringBuilder(90);
+        for(int y = 7; y >= 0; y--) {
+            int empty = 0;
+            for(int x = 0; x < 8; x++) {
+                ChessPiece piece = state.getPiece(square(x, y));
+                if(piece.getType() == PieceType.NONE) {
+                    empty++;
+                    continue;
+                }
+                if(empty != 0) builder.append((char) ('0' + empty));
+                empty = 0;
+                char c = PIECE_CHARS.charAt(piece.getType().ordinal());
+                builder.append(piece.getPlayer() == WHITE ? Character.toUpperCase(c) : c);
+            }
+            if(empty != 0) builder.append((char) ('0' + empty));
+            if(y != 0) builder.append('/');
+        }
+
+        builder.append(state.getTurn() == BLACK ? " b " : " w ");
+        int rights = state.getCastlingRights();
+        if(rights == 0) builder.append('-');
+        if((rights & ChessState.WHITE_KINGSIDE) != 0) builder.append('K');
+        if((rights & ChessState.WHITE_QUEENSIDE) != 0) builder.append('Q');
+        if((rights & ChessState.BLACK_KINGSIDE) != 0) builder.append('k');
+        if((rights & ChessState.BLACK_QUEENSIDE) != 0) builder.append('q');
+
+        builder.append(' ');
+        int enPassant = state.getEnPassantSquare();
+        if(enPassant == -1) builder.append('-');
+        else builder.append((char) ('a' + file(enPassant))).append((char) ('1' + rank(enPassant)));
+        return builder.append(' ').append(state.getHalfmoveClock())
+                .append(' ').append(state.getFullmoveNumber())
+                .toString();
+    }
+
+    private static int possibleCastlingRights(ChessState state) {
+        int rights = 0;
+        long whiteRooks = state.getBitboard(WHITE, PieceType.ROOK);
+        long blackRooks = state.getBitboard(BLACK, PieceType.ROOK);
+        if(contains(state.getBitboard(WHITE, PieceType.KING), 4)) {
+            if(contains(whiteRooks, 7)) rights |= ChessState.WHITE_KINGSIDE;
+            if(contains(whiteRooks, 0)) rights |= ChessState.WHITE_QUEENSIDE;
+        }
+        if(contains(state.getBitboard(BLACK, PieceType.KING), 60)) {
+            if(contains(blackRooks, 63)) rights |= ChessState.BLACK_KINGSIDE;
+            if(contains(blackRooks, 56)) rights |= ChessState.BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+
+    private static int skipSpaces(CharSequence fen, int i) {
+        while(i < fen.length() && fen.charAt(i) == ' ') i++;
+        return i;
+    }
+
+    private static int digit(CharSequence fen, int i, int value, String field) {
+        char c = fen.charAt(i);
+        if(c < '0' || c > '9' || value > 100_000) throw invalid(field, fen);
+        return value * 10 + (c - '0');
+    }
+
+    private static RuntimeException invalid(String field, CharSequence fen) {
+        return new RuntimeException("Invalid FEN " + field + ": " + fen);
+    }
+
+}
@@ -0,0 +1,170 @@
+package me.curz46.chess4j;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.move.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// an immutable copy of a position: the twelve bitboards and the counters, nothing else. it can be shared freely
+// between threads without locks. each snapshot links to the one before it and the move between them, so a game's
+// history is a persistent list in which every new position shares all earlier ones
+public final class PositionSnapshot {
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final Player[] PLAYERS = {Player.WHITE, Player.BLACK};
+
+    // indexed by Player ordinal * 6 + PieceType ordinal, as in ChessState
+    private final long[] bitboards = new long[12];
+    private final Player turn;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long key;
+
+    private final int move;
+    private final PositionSnapshot previous;
+    private final int ply;
+
+    private PositionSnapshot(ChessState state, int move, PositionSnapshot previous) {
+        for(int player = 0; player < 2; player++) {
+            for(int type = 0; type < 6; type++) {
+                bitboards[player * 6 + type] = state.getBitboard(PLAYERS[player], PIECE_TYPES[type]);
+            }
+        }
+        turn = state.getTurn();
+        castlingRights = state.getCastlingRights();
+        enPassantSquare = state.getEnPassantSquare();
+        halfmoveClock = state.getHalfmoveClock();
+        fullmoveNumber = state.getFullmoveNumber();
+        key = state.getKey();
+        this.move = move;
+        this.previous = previous;
+        this.ply = previous == null ? 0 : previous.ply + 1;
+    }
+
+    // a snapshot with no history
+    public static PositionSnapshot of(ChessState state) {
+        return new PositionSnapshot(state, Move.NONE, null);
+    }
+
+    // the snapshot after move was played from previous, reaching the position state is now in
+    public static PositionSnapshot of(ChessState state, int move, PositionSnapshot previous) {
+        return new PositionSnapshot(state, move, previous);
+    }
+
+    public long getBitboard(Player player, PieceType type) {
+        return bitboards[player.ordinal() * 6 + type.ordinal()];
+    }
+
+    public long getOccupancy(Player player) {
+        int offset = player.ordinal() * 6;
+        return bitboards[offset] | bitboards[offset + 1] | bitboards[offset + 2] | bitboards[offset + 3]
+                | bitboards[offset + 4] | bitboards[offset + 5];
+    }
+
+    public long getOccupancy() {
+        return getOccupancy(Player.WHITE) | getOccupancy(Player.BLACK);
+    }
+
+    // PieceType.NONE for an empty square
+    public PieceType getPieceType(int square) {
+        for(int index = 0; index < 12; index++) {
+            if(contains(bitboards[index], square)) return PIECE_TYPES[index % 6];
+        }
+        return PieceType.NONE;
+    }
+
+    // Player.NONE for an empty square
+    public Player getPlayer(int square) {
+        for(int index = 0; index < 12; index++) {
+            if(contains(bitboards[index], square)) return PLAYERS[index / 6];
+        }
+        return Player.NONE;
+    }
+
+    public Player getTurn() {
+        return turn;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    // the move that led here from getPrevious, or Move.NONE for the first snapshot
+    public int getMove() {
+        return move;
+    }
+
+    public PositionSnapshot getPrevious() {
+        return previous;
+    }
+
+    // how many snapshots come before this one
+    public int getPly() {
+        return ply;
+    }
+
+    // every snapshot from the first up to and including this one
+    public List<PositionSnapshot> getHistory() {
+        List<PositionSnapshot> history = new ArrayList<>(ply + 1);
+        for(PositionSnapshot snapshot = this; snapshot != null; snapshot = snapshot.previous) {
+            history.add(snapshot);
+        }
+        Collections.reverse(history);
+        return history;
+    }
+
+    // how many times this position occurs in the history, counting this occurrence
+    public int getRepetitionCount() {
+        int count = 1;
+        int limit = halfmoveClock;
+        PositionSnapshot snapshot = previous;
+        for(int distance = 1; distance <= limit && snapshot != null; distance++, snapshot = snapshot.previous) {
+            if((distance & 1) == 0 && snapshot.key == key) count++;
+        }
+        return count;
+    }
+
+    // a new, mutable state in this position, without the move history
+    public ChessState toState() {
+        ChessState state = new ChessState(Collections.emptySet());
+        for(int index = 0; index < 12; index++) {
+            Player player = PLAYERS[index / 6];
+            for(long pieces = bitboards[index]; pieces != 0; pieces = popLowest(pieces)) {
+                state.placePiece(PIECE_TYPES[index % 6].create(player, toVector(lowest(pieces)), false));
+            }
+        }
+        state.setTurn(turn);
+        state.setCastlingRights(castlingRights);
+        state.setEnPassantSquare(enPassantSquare);
+        state.setHalfmoveClock(halfmoveClock);
+        state.setFullmoveNumber(fullmoveNumber);
+        return state;
+    }
+
+    public String toFen() {
+        return Fen.toFen(toState());
+    }
+
+}
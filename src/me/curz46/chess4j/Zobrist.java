@@ -0,0 +1,93 @@
+package me.curz46.chess4j;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// random keys for Zobrist hashing: a position's key is the xor of the keys of every feature it has, so a move only
+// needs to xor out what it removes and xor in what it adds
+public final class Zobrist {
+
+    // indexed by (Player ordinal * 6 + PieceType ordinal) * 64 + square
+    private static final long[] PIECES = new long[12 * 64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILES = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    static {
+        // splitmix64 from a fixed seed, so keys are stable across runs and machines
+        long seed = 0x2545F4914F6CDD1DL;
+        for(int i = 0; i < PIECES.length; i++) {
+            PIECES[i] = mix(seed += GOLDEN_GAMMA);
+        }
+        // the empty set of rights hashes to zero so that positions without castling need no key
+        for(int i = 1; i < CASTLING.length; i++) {
+            CASTLING[i] = mix(seed += GOLDEN_GAMMA);
+        }
+        for(int i = 0; i < EN_PASSANT_FILES.length; i++) {
+            EN_PASSANT_FILES[i] = mix(seed += GOLDEN_GAMMA);
+        }
+        BLACK_TO_MOVE = mix(seed + GOLDEN_GAMMA);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(Player player, PieceType type, int square) {
+        return piece(player.ordinal() * 6 + type.ordinal(), square);
+    }
+
+    static long piece(int index, int square) {
+        return PIECES[index << 6 | square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int square) {
+        return square == -1 ? 0 : EN_PASSANT_FILES[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // hashes a position from scratch; ChessState maintains the same key incrementally
+    public static long compute(ChessState state) {
+        long key = 0;
+        for(Player player : new Player[]{Player.WHITE, Player.BLACK}) {
+            for(int type = 0; type < 6; type++) {
+                long pieces = state.getBitboard(player, PieceType.values()[type]);
+                for(; pieces != 0; pieces = popLowest(pieces)) {
+                    key ^= piece(player.ordinal() * 6 + type, lowest(pieces));
+                }
+            }
+        }
+        key ^= castling(state.getCastlingRights()) ^ enPassant(state.getEnPassantSquare());
+        if(state.getTurn() == Player.BLACK) key ^= BLACK_TO_MOVE;
+        return key;
+    }
+
+    // the part of the key covering only pawns and Kings, for caching pawn structure and pawn shields
+    public static long computePawnKey(ChessState state) {
+        long key = 0;
+        for(Player player : new Player[]{Player.WHITE, Player.BLACK}) {
+            for(PieceType type : new PieceType[]{PieceType.PAWN, PieceType.KING}) {
+                for(long pieces = state.getBitboard(player, type); pieces != 0; pieces = popLowest(pieces)) {
+                    key ^= piece(player, type, lowest(pieces));
+                }
+            }
+        }
+        return key;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
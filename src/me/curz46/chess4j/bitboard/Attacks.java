@@ -0,0 +1,186 @@
+package me.curz46.chess4j.bitboard;
+
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// precomputed attack sets: plain lookup tables for the leapers and magic bitboards for the sliders
+public final class Attacks {
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    // indexed by Player ordinal, then square
+    private static final long[][] PAWN = new long[2][64];
+
+    // found once by a seeded search for sparse random multipliers with no destructive collisions
+    private static final long[] ROOK_MAGICS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+            0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+            0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+            0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+            0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+            0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+            0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+            0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+            0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+            0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+            0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+            0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+            0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+            0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+            0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+            0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+            0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+
+    private static final Magic[] ROOK = new Magic[64];
+    private static final Magic[] BISHOP = new Magic[64];
+
+    // indexed by two squares: the squares strictly between them, and the whole line through them (including both),
+    // or EMPTY when they do not share a rank, file or diagonal
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for(int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, KNIGHT_STEPS);
+            KING[square] = steps(square, KING_STEPS);
+            PAWN[0][square] = steps(square, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[1][square] = steps(square, new int[][]{{-1, -1}, {1, -1}});
+            ROOK[square] = Magic.build(square, ROOK_DIRECTIONS, ROOK_MAGICS[square]);
+            BISHOP[square] = Magic.build(square, BISHOP_DIRECTIONS, BISHOP_MAGICS[square]);
+        }
+        for(int a = 0; a < 64; a++) {
+            for(int b = 0; b < 64; b++) {
+                if(a == b) continue;
+                if(contains(rook(a, EMPTY), b)) {
+                    BETWEEN[a][b] = rook(a, bit(b)) & rook(b, bit(a));
+                    LINE[a][b] = rook(a, EMPTY) & rook(b, EMPTY) | bit(a) | bit(b);
+                } else if(contains(bishop(a, EMPTY), b)) {
+                    BETWEEN[a][b] = bishop(a, bit(b)) & bishop(b, bit(a));
+                    LINE[a][b] = bishop(a, EMPTY) & bishop(b, EMPTY) | bit(a) | bit(b);
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    // squares attacked by a pawn of the given side (Player ordinal) standing on square
+    public static long pawn(int side, int square) {
+        return PAWN[side][square];
+    }
+
+    public static long rook(int square, long occupancy) {
+        return ROOK[square].attacks(occupancy);
+    }
+
+    public static long bishop(int square, long occupancy) {
+        return BISHOP[square].attacks(occupancy);
+    }
+
+    public static long queen(int square, long occupancy) {
+        return ROOK[square].attacks(occupancy) | BISHOP[square].attacks(occupancy);
+    }
+
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    private static long steps(int square, int[][] steps) {
+        long attacks = EMPTY;
+        for(int[] step : steps) {
+            int x = file(square) + step[0];
+            int y = rank(square) + step[1];
+            if(isOnBoard(x, y)) attacks |= bit(square(x, y));
+        }
+        return attacks;
+    }
+
+    // walks each ray until it leaves the board or hits a blocker (inclusive); only used to build the tables
+    private static long slide(int square, int[][] directions, long occupancy) {
+        long attacks = EMPTY;
+        for(int[] direction : directions) {
+            int x = file(square) + direction[0];
+            int y = rank(square) + direction[1];
+            while(isOnBoard(x, y)) {
+                attacks |= bit(square(x, y));
+                if(contains(occupancy, square(x, y))) break;
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static final class Magic {
+
+        private final long mask;
+        private final long magic;
+        private final int shift;
+        private final long[] table;
+
+        private Magic(long mask, long magic, int shift, long[] table) {
+            this.mask = mask;
+            this.magic = magic;
+            this.shift = shift;
+            this.table = table;
+        }
+
+        private long attacks(long occupancy) {
+            return table[(int) (((occupancy & mask) * magic) >>> shift)];
+        }
+
+        private static Magic build(int square, int[][] directions, long magic) {
+            // the relevant occupancy excludes the last square of each ray, since a blocker there changes nothing
+            long edges = ((RANK_1 | RANK_8) & ~(RANK_1 << (rank(square) * 8)))
+                    | ((FILE_A | FILE_H) & ~(FILE_A << file(square)));
+            long mask = slide(square, directions, EMPTY) & ~edges;
+            int shift = 64 - count(mask);
+            long[] table = new long[1 << count(mask)];
+
+            // enumerate every subset of the mask (carry-rippler) and store its attack set at the magic index
+            long subset = EMPTY;
+            do {
+                table[(int) ((subset * magic) >>> shift)] = slide(square, directions, subset);
+                subset = (subset - mask) & mask;
+            } while(subset != EMPTY);
+            return new Magic(mask, magic, shift, table);
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package me.curz46.chess4j.bitboard;
+
+import me.curz46.chess4j.util.Vector2i;
+
+// squares are indexed 0..63 as (y * 8 + x), so a1 = 0, h1 = 7 and h8 = 63; bit n of a bitboard is square n
+public final class Bitboards {
+
+    public static final long EMPTY = 0L;
+    public static final long ALL = ~0L;
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    // a1 is a dark square
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    private Bitboards() {
+    }
+
+    public static int square(int x, int y) {
+        return y << 3 | x;
+    }
+
+    public static int square(Vector2i position) {
+        return position.getSquare();
+    }
+
+    public static boolean isOnBoard(int x, int y) {
+        return (x | y) >>> 3 == 0;
+    }
+
+    public static boolean isOnBoard(Vector2i position) {
+        return position != null && isOnBoard(position.getX(), position.getY());
+    }
+
+    public static int file(int square) {
+        return square & 7;
+    }
+
+    public static int rank(int square) {
+        return square >>> 3;
+    }
+
+    public static Vector2i toVector(int square) {
+        return Vector2i.of(square);
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long bitboard, int square) {
+        return (bitboard >>> square & 1L) != 0;
+    }
+
+    // index of the least significant set bit, i.e. the next square when iterating with popLowest
+    public static int lowest(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static long popLowest(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    public static String toString(long bitboard) {
+        StringBuilder builder = new StringBuilder(72);
+        for(int y = 7; y >= 0; y--) {
+            for(int x = 0; x < 8; x++) {
+                builder.append(contains(bitboard, square(x, y)) ? '1' : '.');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,187 @@
+package me.curz46.chess4j.eval;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.bitboard.Attacks;
+
+import static me.curz46.chess4j.Player.BLACK;
+import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// static evaluation in centipawns. material and piece-square terms come ready-made from ChessState, which keeps them
+// up to date in makeMove/unmakeMove; pawn structure and King safety are computed here from the bitboards, with the
+// pawn terms cached by pawn key. every term is scored for the middlegame and the endgame and blended by the game
+// phase. an Evaluator keeps scratch state and its own PawnCache, so each thread needs its own, but evaluating never
+// allocates
+public final class Evaluator {
+
+    private static final int DEFAULT_PAWN_CACHE_ENTRIES = 1 << 14;
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    // indexed by rank as seen from the pawn's own side
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+
+    // per pawn in front of a King still on its first two ranks
+    private static final int SHIELD_MIDDLEGAME = 10;
+    // indexed by PieceType ordinal: how much a piece attacking the squares around the enemy King adds to the danger
+    private static final int[] ATTACK_WEIGHTS = {0, 2, 2, 3, 5, 0};
+    private static final int MAX_DANGER = 500;
+    private static final PieceType[] ATTACKERS = {PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN};
+
+    // squares in front of a pawn on its own and the neighbouring files, indexed by Player ordinal, then square
+    private static final long[][] PASSED_MASKS = new long[2][64];
+    // the two ranks in front of a King on its own and the neighbouring files
+    private static final long[][] SHIELD_MASKS = new long[2][64];
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    static {
+        for(int file = 0; file < 8; file++) {
+            long files = FILE_A << file;
+            ADJACENT_FILES[file] = (files << 1 & ~FILE_A) | (files >>> 1 & ~FILE_H);
+        }
+        for(int square = 0; square < 64; square++) {
+            long span = FILE_A << file(square) | ADJACENT_FILES[file(square)];
+            long above = rank(square) == 7 ? EMPTY : ALL << (rank(square) + 1) * 8;
+            long below = rank(square) == 0 ? EMPTY : ALL >>> (8 - rank(square)) * 8;
+            PASSED_MASKS[0][square] = span & above;
+            PASSED_MASKS[1][square] = span & below;
+            long front = rank(square) < 6 ? RANK_1 << (rank(square) + 1) * 8 | RANK_1 << (rank(square) + 2) * 8 : EMPTY;
+            long back = rank(square) > 1 ? RANK_1 << (rank(square) - 1) * 8 | RANK_1 << (rank(square) - 2) * 8 : EMPTY;
+            SHIELD_MASKS[0][square] = span & front;
+            SHIELD_MASKS[1][square] = span & back;
+        }
+    }
+
+    private final PawnCache pawnCache;
+
+    // the terms of the evaluation in progress, from White's point of view
+    private int middlegame;
+    private int endgame;
+
+    public Evaluator() {
+        this(DEFAULT_PAWN_CACHE_ENTRIES);
+    }
+
+    public Evaluator(int pawnCacheEntries) {
+        this.pawnCache = new PawnCache(pawnCacheEntries);
+    }
+
+    // the score from the side to move's point of view
+    public int evaluate(ChessState state) {
+        middlegame = 0;
+        endgame = 0;
+        long pawnKey = state.getPawnKey();
+        int cached = pawnCache.find(pawnKey);
+        if(cached == -1) {
+            evaluatePawns(state);
+            pawnCache.store(pawnKey, middlegame, endgame);
+        } else {
+            middlegame = pawnCache.getMiddlegame(cached);
+            endgame = pawnCache.getEndgame(cached);
+        }
+        middlegame += state.getMiddlegameScore();
+        endgame += state.getEndgameScore();
+        evaluateKingDanger(state, WHITE);
+        evaluateKingDanger(state, BLACK);
+
+        int phase = Math.min(state.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        return state.getTurn() == WHITE ? score : -score;
+    }
+
+    // the same score from White's point of view, regardless of who is to move
+    public int evaluateForWhite(ChessState state) {
+        int score = evaluate(state);
+        return state.getTurn() == WHITE ? score : -score;
+    }
+
+    public PawnCache getPawnCache() {
+        return pawnCache;
+    }
+
+    // everything which depends on pawns and Kings alone, and so can be cached under the pawn key
+    private void evaluatePawns(ChessState state) {
+        long whitePawns = state.getBitboard(WHITE, PieceType.PAWN);
+        long blackPawns = state.getBitboard(BLACK, PieceType.PAWN);
+        evaluatePawns(0, whitePawns, blackPawns, 1);
+        evaluatePawns(1, blackPawns, whitePawns, -1);
+        evaluateShield(state.getBitboard(WHITE, PieceType.KING), WHITE, whitePawns);
+        evaluateShield(state.getBitboard(BLACK, PieceType.KING), BLACK, blackPawns);
+    }
+
+    private void evaluatePawns(int side, long pawns, long enemyPawns, int sign) {
+        for(int file = 0; file < 8; file++) {
+            long onFile = pawns & FILE_A << file;
+            if(onFile == 0) continue;
+            int count = count(onFile);
+            if(count > 1) {
+                middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                endgame += sign * DOUBLED_ENDGAME * (count - 1);
+            }
+            if((pawns & ADJACENT_FILES[file]) == 0) {
+                middlegame += sign * ISOLATED_MIDDLEGAME * count;
+                endgame += sign * ISOLATED_ENDGAME * count;
+            }
+        }
+        for(long remaining = pawns; remaining != 0; remaining = popLowest(remaining)) {
+            int square = lowest(remaining);
+            if((PASSED_MASKS[side][square] & enemyPawns) != 0) continue;
+            int rank = side == 0 ? rank(square) : 7 - rank(square);
+            middlegame += sign * PASSED_MIDDLEGAME[rank];
+            endgame += sign * PASSED_ENDGAME[rank];
+        }
+    }
+
+    // a pawn shield only matters for a King still near its own back rank, and only in the middlegame
+    private void evaluateShield(long king, Player player, long pawns) {
+        if(king == 0) return;
+        int square = lowest(king);
+        int homeRank = player == WHITE ? 0 : 7;
+        if(Math.abs(rank(square) - homeRank) > 1) return;
+        int sign = player == WHITE ? 1 : -1;
+        middlegame += sign * SHIELD_MIDDLEGAME * count(SHIELD_MASKS[player.ordinal()][square] & pawns);
+    }
+
+    // danger growing with the square of the attack on the squares around the King, in the middlegame
+    private void evaluateKingDanger(ChessState state, Player player) {
+        long king = state.getBitboard(player, PieceType.KING);
+        if(king == 0) return;
+        int square = lowest(king);
+        int sign = player == WHITE ? 1 : -1;
+        Player enemy = player == WHITE ? BLACK : WHITE;
+        long zone = Attacks.king(square) | king;
+        long occupancy = state.getOccupancy();
+        int attackers = 0;
+        int units = 0;
+        for(PieceType type : ATTACKERS) {
+            for(long pieces = state.getBitboard(enemy, type); pieces != 0; pieces = popLowest(pieces)) {
+                int hits = count(attacks(type, lowest(pieces), occupancy) & zone);
+                if(hits == 0) continue;
+                attackers++;
+                units += ATTACK_WEIGHTS[type.ordinal()] * hits;
+            }
+        }
+        // a lone attacker is rarely dangerous
+        if(attackers >= 2) middlegame -= sign * Math.min(units * units / 2, MAX_DANGER);
+    }
+
+    private static long attacks(PieceType type, int square, long occupancy) {
+        switch(type) {
+            case KNIGHT:
+                return Attacks.knight(square);
+            case BISHOP:
+                return Attacks.bishop(square, occupancy);
+            case ROOK:
+                return Attacks.rook(square, occupancy);
+            default:
+                return Attacks.queen(square, occupancy);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package me.curz46.chess4j.eval;
+
+import java.util.Arrays;
+
+// direct-mapped cache of pawn structure and pawn shield scores keyed by ChessState.getPawnKey(). pawns and Kings
+// rarely move compared to the other pieces, so nearly every lookup hits. not thread-safe: each Evaluator owns one
+public final class PawnCache {
+
+    private final long[] keys;
+    private final int[] middlegame;
+    private final int[] endgame;
+    private final int mask;
+
+    private long hits;
+    private long misses;
+
+    // the size is rounded down to a power of two
+    public PawnCache(int entries) {
+        if(entries < 1) throw new RuntimeException("A PawnCache needs at least one entry.");
+        int size = Integer.highestOneBit(entries);
+        this.keys = new long[size];
+        this.middlegame = new int[size];
+        this.endgame = new int[size];
+        this.mask = size - 1;
+    }
+
+    // the slot holding key, or -1 on a miss, after which the caller computes the scores and stores them
+    public int find(long key) {
+        int index = (int) key & mask;
+        if(keys[index] == key) {
+            hits++;
+            return index;
+        }
+        misses++;
+        return -1;
+    }
+
+    public void store(long key, int middlegameScore, int endgameScore) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        middlegame[index] = middlegameScore;
+        endgame[index] = endgameScore;
+    }
+
+    public int getMiddlegame(int index) {
+        return middlegame[index];
+    }
+
+    public int getEndgame(int index) {
+        return endgame[index];
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void clear() {
+        // no real position has a pawn key of 0, so zeroed entries never match
+        Arrays.fill(keys, 0);
+        hits = 0;
+        misses = 0;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+}
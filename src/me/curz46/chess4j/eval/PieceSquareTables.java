@@ -0,0 +1,131 @@
+package me.curz46.chess4j.eval;
+
+// material plus piece-square values for the middlegame and the endgame, indexed like ChessState's bitboards
+// (Player ordinal * 6 + PieceType ordinal) and then by square. Black's entries are mirrored and negated, so the sum
+// over every piece on the board is the score from White's point of view
+public final class PieceSquareTables {
+
+    // game phase: the total weight of the pieces still on the board, 24 at the start and 0 with only pawns left
+    public static final int MAX_PHASE = 24;
+
+    // indexed by PieceType ordinal
+    private static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+    private static final int[] MIDDLEGAME_VALUES = {100, 320, 330, 500, 900, 0};
+    private static final int[] ENDGAME_VALUES = {120, 300, 320, 530, 950, 0};
+
+    // laid out as seen from White's side, so the first row is the eighth rank
+    private static final int[] PAWN_MIDDLEGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] middlegame = {PAWN_MIDDLEGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDDLEGAME};
+        int[][] endgame = {PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+        for(int type = 0; type < 6; type++) {
+            for(int square = 0; square < 64; square++) {
+                // White reads its table upside down, Black reads it as laid out
+                int white = (7 - (square >>> 3)) * 8 + (square & 7);
+                MIDDLEGAME[type][square] = MIDDLEGAME_VALUES[type] + middlegame[type][white];
+                ENDGAME[type][square] = ENDGAME_VALUES[type] + endgame[type][white];
+                MIDDLEGAME[6 + type][square] = -(MIDDLEGAME_VALUES[type] + middlegame[type][square]);
+                ENDGAME[6 + type][square] = -(ENDGAME_VALUES[type] + endgame[type][square]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    public static int middlegame(int index, int square) {
+        return MIDDLEGAME[index][square];
+    }
+
+    public static int endgame(int index, int square) {
+        return ENDGAME[index][square];
+    }
+
+    public static int phase(int index) {
+        return PHASE[index % 6];
+    }
+
+}
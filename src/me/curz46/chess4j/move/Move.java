@@ -0,0 +1,98 @@
+package me.curz46.chess4j.move;
+
+import me.curz46.chess4j.ChessBoard.MoveMeta;
+import me.curz46.chess4j.ChessPiece.PieceType;
+
+// moves are packed into the low 16 bits of an int: from (6 bits), to (6 bits) and flags (4 bits)
+public final class Move {
+
+    // never a valid move, since from == to
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    // promotion flags carry the piece in their low two bits, and CAPTURE is or-ed in for capturing promotions
+    public static final int KNIGHT_PROMOTION = 8;
+    public static final int BISHOP_PROMOTION = 9;
+    public static final int ROOK_PROMOTION = 10;
+    public static final int QUEEN_PROMOTION = 11;
+
+    private static final PieceType[] PROMOTIONS = {PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN};
+    private static final char[] PROMOTION_CHARS = {'n', 'b', 'r', 'q'};
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int flags) {
+        return from | to << 6 | flags << 12;
+    }
+
+    public static int promotion(int from, int to, PieceType type, boolean capture) {
+        if(!isPromotionType(type)) throw new RuntimeException("A Pawn cannot be promoted to " + type + ".");
+        return of(from, to, (KNIGHT_PROMOTION + type.ordinal() - PieceType.KNIGHT.ordinal()) | (capture ? CAPTURE : 0));
+    }
+
+    // only a Knight, Bishop, Rook or Queen may be chosen for a promotion
+    public static boolean isPromotionType(PieceType type) {
+        return type == PieceType.KNIGHT || type == PieceType.BISHOP || type == PieceType.ROOK
+                || type == PieceType.QUEEN;
+    }
+
+    public static int getFrom(int move) {
+        return move & 63;
+    }
+
+    public static int getTo(int move) {
+        return move >>> 6 & 63;
+    }
+
+    public static int getFlags(int move) {
+        return move >>> 12 & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE << 12) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & KNIGHT_PROMOTION << 12) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flags = getFlags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return getFlags(move) == EN_PASSANT;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return getFlags(move) == DOUBLE_PUSH;
+    }
+
+    // the piece a promotion turns into, or null when the move is not a promotion
+    public static PieceType getPromotion(int move) {
+        return isPromotion(move) ? PROMOTIONS[getFlags(move) & 3] : null;
+    }
+
+    public static MoveMeta getMeta(int move) {
+        if(isCapture(move) && !isEnPassant(move)) return MoveMeta.ATTACKS;
+        if(isCastle(move) || isPromotion(move) || isEnPassant(move)) return MoveMeta.SPECIAL;
+        return MoveMeta.DEFAULT;
+    }
+
+    // long algebraic notation as used by UCI, e.g. e2e4 or e7e8q
+    public static String toString(int move) {
+        StringBuilder builder = new StringBuilder(5)
+                .append((char) ('a' + (getFrom(move) & 7))).append((char) ('1' + (getFrom(move) >>> 3)))
+                .append((char) ('a' + (getTo(move) & 7))).append((char) ('1' + (getTo(move) >>> 3)));
+        if(isPromotion(move)) builder.append(PROMOTION_CHARS[getFlags(move) & 3]);
+        return builder.toString();
+    }
+
+}
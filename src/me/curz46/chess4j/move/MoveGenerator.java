@@ -0,0 +1,427 @@
+package me.curz46.chess4j.move;
+
+import me.curz46.chess4j.ChessPiece;
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.bitboard.Attacks;
+
+import static me.curz46.chess4j.Player.BLACK;
+import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// move generation: pseudo-legal moves respect piece movement, blockers and castling/en passant rules, but may still
+// leave the mover's own King in check; legal moves are generated directly from the checkers and pinned pieces
+public final class MoveGenerator {
+
+    private static final long RANK_3 = RANK_1 << 16;
+    private static final long RANK_6 = RANK_1 << 40;
+
+    private MoveGenerator() {
+    }
+
+    // appends every pseudo-legal move for the side to move
+    public static void generate(ChessState state, MoveList moves) {
+        generate(state, ALL, moves);
+    }
+
+    // appends the pseudo-legal moves of the side to move's pieces standing on the squares in fromMask
+    public static void generate(ChessState state, long fromMask, MoveList moves) {
+        Player player = state.getTurn();
+        if(player == Player.NONE) return;
+        generatePieceMoves(state, player, fromMask, ALL, -1, moves);
+        long own = state.getOccupancy(player);
+        long enemies = state.getOccupancy(player == WHITE ? BLACK : WHITE);
+        for(long kings = state.getBitboard(player, PieceType.KING) & fromMask; kings != 0; kings = popLowest(kings)) {
+            int from = lowest(kings);
+            addMoves(from, Attacks.king(from) & ~own, enemies, moves);
+            addCastles(state, player, from, moves);
+        }
+    }
+
+    // appends every legal move for the side to move
+    public static void generateLegal(ChessState state, MoveList moves) {
+        generateLegal(state, ALL, moves);
+    }
+
+    public static void generateLegal(ChessState state, long fromMask, MoveList moves) {
+        Player player = state.getTurn();
+        if(player == Player.NONE) return;
+        long kings = state.getBitboard(player, PieceType.KING);
+        if(count(kings) != 1) {
+            // without a single King to protect there are no pins, so fall back to testing each move
+            int start = moves.size();
+            generate(state, fromMask, moves);
+            for(int i = moves.size() - 1; i >= start; i--) {
+                if(!isLegal(state, moves.get(i))) moves.removeUnordered(i);
+            }
+            return;
+        }
+        Player enemy = player == WHITE ? BLACK : WHITE;
+        int king = lowest(kings);
+        long own = state.getOccupancy(player);
+        long enemies = state.getOccupancy(enemy);
+        long occupancy = own | enemies;
+        long checkers = getAttackers(state, king, enemy, occupancy);
+
+        if((fromMask & kings) != 0) {
+            // the King is taken off the board first, so it cannot hide from a slider behind its own square
+            long withoutKing = occupancy ^ kings;
+            for(long targets = Attacks.king(king) & ~own; targets != 0; targets = popLowest(targets)) {
+                int to = lowest(targets);
+                if(getAttackers(state, to, enemy, withoutKing) != 0) continue;
+                moves.add(Move.of(king, to, contains(enemies, to) ? Move.CAPTURE : Move.QUIET));
+            }
+            if(checkers == 0) addCastles(state, player, king, moves);
+        }
+        // in double check only the King may move
+        if(count(checkers) > 1) return;
+
+        // in check, every other piece must capture the checker or block it
+        long targetMask = checkers == 0 ? ALL : checkers | Attacks.between(king, lowest(checkers));
+        long pinned = getPinned(state, player, king);
+        generatePieceMoves(state, player, fromMask & ~pinned & ~kings, targetMask, king, moves);
+        // a pinned piece may only move along the line through its King and the pinning piece
+        for(long pins = pinned & fromMask; pins != 0; pins = popLowest(pins)) {
+            int from = lowest(pins);
+            generatePieceMoves(state, player, bit(from), targetMask & Attacks.line(king, from), king, moves);
+        }
+    }
+
+    // whether the side to move has any legal move, stopping at the first one found; cheaper than generating them all
+    // when only checkmate and stalemate matter
+    public static boolean hasLegalMove(ChessState state) {
+        Player player = state.getTurn();
+        if(player == Player.NONE) return false;
+        long kings = state.getBitboard(player, PieceType.KING);
+        if(count(kings) != 1) {
+            MoveList moves = new MoveList();
+            generateLegal(state, moves);
+            return !moves.isEmpty();
+        }
+        Player enemy = player == WHITE ? BLACK : WHITE;
+        int king = lowest(kings);
+        long own = state.getOccupancy(player);
+        long enemies = state.getOccupancy(enemy);
+        long occupancy = own | enemies;
+
+        // King steps come first, as they are most often available; castling needs no check of its own, since a
+        // legal castle implies the King could also step onto the square it passes
+        long withoutKing = occupancy ^ kings;
+        for(long targets = Attacks.king(king) & ~own; targets != 0; targets = popLowest(targets)) {
+            if(getAttackers(state, lowest(targets), enemy, withoutKing) == 0) return true;
+        }
+        long checkers = getAttackers(state, king, enemy, occupancy);
+        if(count(checkers) > 1) return false;
+
+        long targetMask = (checkers == 0 ? ALL : checkers | Attacks.between(king, lowest(checkers))) & ~own;
+        long pinned = getPinned(state, player, king);
+        long queens = state.getBitboard(player, PieceType.QUEEN);
+        for(long knights = state.getBitboard(player, PieceType.KNIGHT) & ~pinned;
+            knights != 0; knights = popLowest(knights)) {
+            if((Attacks.knight(lowest(knights)) & targetMask) != 0) return true;
+        }
+        for(long diagonal = state.getBitboard(player, PieceType.BISHOP) | queens;
+            diagonal != 0; diagonal = popLowest(diagonal)) {
+            int from = lowest(diagonal);
+            long targets = Attacks.bishop(from, occupancy) & targetMask;
+            if(contains(pinned, from)) targets &= Attacks.line(king, from);
+            if(targets != 0) return true;
+        }
+        for(long straight = state.getBitboard(player, PieceType.ROOK) | queens;
+            straight != 0; straight = popLowest(straight)) {
+            int from = lowest(straight);
+            long targets = Attacks.rook(from, occupancy) & targetMask;
+            if(contains(pinned, from)) targets &= Attacks.line(king, from);
+            if(targets != 0) return true;
+        }
+
+        int forward = player == WHITE ? 8 : -8;
+        int enPassantSquare = state.getEnPassantSquare();
+        for(long pawns = state.getBitboard(player, PieceType.PAWN); pawns != 0; pawns = popLowest(pawns)) {
+            int from = lowest(pawns);
+            long mask = contains(pinned, from) ? targetMask & Attacks.line(king, from) : targetMask;
+            long targets = Attacks.pawn(player.ordinal(), from) & enemies;
+            int single = from + forward;
+            if(!contains(occupancy, single)) {
+                targets |= bit(single);
+                int dbl = single + forward;
+                if(contains(player == WHITE ? RANK_3 : RANK_6, single) && !contains(occupancy, dbl)) targets |= bit(dbl);
+            }
+            if((targets & mask) != 0) return true;
+            if(enPassantSquare != -1 && contains(Attacks.pawn(player.ordinal(), from), enPassantSquare)
+                    && isEnPassantLegal(state, player, from, enPassantSquare, king)) return true;
+        }
+        return false;
+    }
+
+    // the player's pieces that stand alone between their King and an enemy slider
+    public static long getPinned(ChessState state, Player player, int king) {
+        Player enemy = player == WHITE ? BLACK : WHITE;
+        long occupancy = state.getOccupancy();
+        long own = state.getOccupancy(player);
+        long queens = state.getBitboard(enemy, PieceType.QUEEN);
+        long snipers = Attacks.rook(king, EMPTY) & (state.getBitboard(enemy, PieceType.ROOK) | queens)
+                | Attacks.bishop(king, EMPTY) & (state.getBitboard(enemy, PieceType.BISHOP) | queens);
+        long pinned = EMPTY;
+        for(; snipers != 0; snipers = popLowest(snipers)) {
+            long blockers = Attacks.between(king, lowest(snipers)) & occupancy;
+            if(blockers != 0 && popLowest(blockers) == 0 && (blockers & own) != 0) pinned |= blockers;
+        }
+        return pinned;
+    }
+
+    // whether a pseudo-legal move leaves the mover's own King safe
+    public static boolean isLegal(ChessState state, int move) {
+        Player player = state.getTurn();
+        state.makeMove(move);
+        long king = state.getBitboard(player, PieceType.KING);
+        boolean check = king != 0 && isAttacked(state, lowest(king), player == WHITE ? BLACK : WHITE);
+        state.unmakeMove();
+        return !check;
+    }
+
+    // whether an arbitrary int is a pseudo-legal move in the position, with exactly the flags the generator would give
+    // it; together with isLegal this checks a single submitted move without generating the others
+    public static boolean isPseudoLegal(ChessState state, int move) {
+        Player player = state.getTurn();
+        if(player == Player.NONE || move >>> 16 != 0) return false;
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        ChessPiece piece = state.getPiece(from);
+        if(piece.getPlayer() != player) return false;
+        if(!contains(getTargets(state, player, piece.getType(), from), to)) return false;
+        PieceType promotion = Move.getPromotion(move);
+        boolean promotes = piece.getType() == PieceType.PAWN && (rank(to) == 7 || rank(to) == 0);
+        if(promotes != (promotion != null)) return false;
+        return encode(state, from, to, promotion) == move;
+    }
+
+    // works out the flags for a from/to pair on the given position; the move is not validated
+    public static int encode(ChessState state, int from, int to, PieceType promotion) {
+        ChessPiece piece = state.getPiece(from);
+        boolean capture = state.getPiece(to) != ChessPiece.NONE;
+        if(piece.getType() == PieceType.PAWN) {
+            if(to == state.getEnPassantSquare() && (from & 7) != (to & 7)) return Move.of(from, to, Move.EN_PASSANT);
+            if(Math.abs(to - from) == 16) return Move.of(from, to, Move.DOUBLE_PUSH);
+            if(promotion != null && (to >>> 3 == 7 || to >>> 3 == 0)) return Move.promotion(from, to, promotion, capture);
+        } else if(piece.getType() == PieceType.KING && Math.abs(to - from) == 2) {
+            return Move.of(from, to, to > from ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+        }
+        return Move.of(from, to, capture ? Move.CAPTURE : Move.QUIET);
+    }
+
+    // moves of every piece but the King from fromMask that land on targetMask; king is the square of the mover's King
+    // when generating legal moves, which en passant captures are checked against, or -1 for pseudo-legal moves
+    private static void generatePieceMoves(ChessState state, Player player, long fromMask, long targetMask, int king,
+                                           MoveList moves) {
+        long own = state.getOccupancy(player);
+        long enemies = state.getOccupancy(player == WHITE ? BLACK : WHITE);
+        long occupancy = own | enemies;
+        long allowed = ~own & targetMask;
+
+        generatePawnMoves(state, player, state.getBitboard(player, PieceType.PAWN) & fromMask, targetMask, king, moves);
+        for(long knights = state.getBitboard(player, PieceType.KNIGHT) & fromMask;
+            knights != 0; knights = popLowest(knights)) {
+            int from = lowest(knights);
+            addMoves(from, Attacks.knight(from) & allowed, enemies, moves);
+        }
+        for(long bishops = state.getBitboard(player, PieceType.BISHOP) & fromMask;
+            bishops != 0; bishops = popLowest(bishops)) {
+            int from = lowest(bishops);
+            addMoves(from, Attacks.bishop(from, occupancy) & allowed, enemies, moves);
+        }
+        for(long rooks = state.getBitboard(player, PieceType.ROOK) & fromMask; rooks != 0; rooks = popLowest(rooks)) {
+            int from = lowest(rooks);
+            addMoves(from, Attacks.rook(from, occupancy) & allowed, enemies, moves);
+        }
+        for(long queens = state.getBitboard(player, PieceType.QUEEN) & fromMask;
+            queens != 0; queens = popLowest(queens)) {
+            int from = lowest(queens);
+            addMoves(from, Attacks.queen(from, occupancy) & allowed, enemies, moves);
+        }
+    }
+
+    private static void addCastles(ChessState state, Player player, int from, MoveList moves) {
+        for(long castles = getCastlingTargets(state, player, from); castles != 0; castles = popLowest(castles)) {
+            int to = lowest(castles);
+            moves.add(Move.of(from, to, to > from ? Move.KING_CASTLE : Move.QUEEN_CASTLE));
+        }
+    }
+
+    private static void generatePawnMoves(ChessState state, Player player, long pawns, long targetMask, int king,
+                                          MoveList moves) {
+        if(pawns == 0) return;
+        long empty = ~state.getOccupancy();
+        long enemies = state.getOccupancy(player == WHITE ? BLACK : WHITE);
+
+        // targets are computed for all pawns at once, then each target is walked back to its pawn by a fixed offset
+        long single;
+        long dbl;
+        long westCaptures;
+        long eastCaptures;
+        int forward;
+        long promotionRank;
+        if(player == WHITE) {
+            single = pawns << 8 & empty;
+            dbl = (single & RANK_3) << 8 & empty;
+            westCaptures = (pawns & ~FILE_A) << 7 & enemies;
+            eastCaptures = (pawns & ~FILE_H) << 9 & enemies;
+            forward = 8;
+            promotionRank = RANK_8;
+        } else {
+            single = pawns >>> 8 & empty;
+            dbl = (single & RANK_6) >>> 8 & empty;
+            westCaptures = (pawns & ~FILE_A) >>> 9 & enemies;
+            eastCaptures = (pawns & ~FILE_H) >>> 7 & enemies;
+            forward = -8;
+            promotionRank = RANK_1;
+        }
+
+        dbl &= targetMask;
+        single &= targetMask;
+        westCaptures &= targetMask;
+        eastCaptures &= targetMask;
+
+        addPawnMoves(single & ~promotionRank, forward, Move.QUIET, moves);
+        addPawnMoves(dbl, 2 * forward, Move.DOUBLE_PUSH, moves);
+        addPawnMoves(westCaptures & ~promotionRank, forward - 1, Move.CAPTURE, moves);
+        addPawnMoves(eastCaptures & ~promotionRank, forward + 1, Move.CAPTURE, moves);
+        addPromotions(single & promotionRank, forward, false, moves);
+        addPromotions(westCaptures & promotionRank, forward - 1, true, moves);
+        addPromotions(eastCaptures & promotionRank, forward + 1, true, moves);
+
+        int enPassantSquare = state.getEnPassantSquare();
+        if(enPassantSquare != -1) {
+            // the pawns able to capture en passant are those a pawn of the other side on the target would attack
+            long attackers = Attacks.pawn(player == WHITE ? 1 : 0, enPassantSquare) & pawns;
+            for(; attackers != 0; attackers = popLowest(attackers)) {
+                int from = lowest(attackers);
+                if(king != -1 && !isEnPassantLegal(state, player, from, enPassantSquare, king)) continue;
+                moves.add(Move.of(from, enPassantSquare, Move.EN_PASSANT));
+            }
+        }
+    }
+
+    // en passant empties two squares on the same rank at once, which can uncover the King along that rank (or along
+    // a diagonal), so the capture is tested against the occupancy it leaves behind; this also settles checks and pins
+    private static boolean isEnPassantLegal(ChessState state, Player player, int from, int to, int king) {
+        int captured = player == WHITE ? to - 8 : to + 8;
+        long occupancy = state.getOccupancy() ^ bit(from) ^ bit(captured) | bit(to);
+        Player enemy = player == WHITE ? BLACK : WHITE;
+        return (getAttackers(state, king, enemy, occupancy) & ~bit(captured)) == 0;
+    }
+
+    private static void addPawnMoves(long targets, int offset, int flags, MoveList moves) {
+        for(; targets != 0; targets = popLowest(targets)) {
+            int to = lowest(targets);
+            moves.add(Move.of(to - offset, to, flags));
+        }
+    }
+
+    private static void addPromotions(long targets, int offset, boolean capture, MoveList moves) {
+        int captureFlag = capture ? Move.CAPTURE : 0;
+        for(; targets != 0; targets = popLowest(targets)) {
+            int to = lowest(targets);
+            int from = to - offset;
+            moves.add(Move.of(from, to, Move.QUEEN_PROMOTION | captureFlag));
+            moves.add(Move.of(from, to, Move.KNIGHT_PROMOTION | captureFlag));
+            moves.add(Move.of(from, to, Move.ROOK_PROMOTION | captureFlag));
+            moves.add(Move.of(from, to, Move.BISHOP_PROMOTION | captureFlag));
+        }
+    }
+
+    private static void addMoves(int from, long targets, long enemies, MoveList moves) {
+        for(long captures = targets & enemies; captures != 0; captures = popLowest(captures)) {
+            moves.add(Move.of(from, lowest(captures), Move.CAPTURE));
+        }
+        for(long quiets = targets & ~enemies; quiets != 0; quiets = popLowest(quiets)) {
+            moves.add(Move.of(from, lowest(quiets), Move.QUIET));
+        }
+    }
+
+    public static long getTargets(ChessState state, ChessPiece piece) {
+        if(piece.getPlayer() == Player.NONE) return EMPTY;
+        return getTargets(state, piece.getPlayer(), piece.getType(), square(piece.getPosition()));
+    }
+
+    public static long getTargets(ChessState state, Player player, PieceType type, int square) {
+        long notOwn = ~state.getOccupancy(player);
+        switch(type) {
+            case PAWN:
+                return getPawnTargets(state, player, square);
+            case KNIGHT:
+                return Attacks.knight(square) & notOwn;
+            case BISHOP:
+                return Attacks.bishop(square, state.getOccupancy()) & notOwn;
+            case ROOK:
+                return Attacks.rook(square, state.getOccupancy()) & notOwn;
+            case QUEEN:
+                return Attacks.queen(square, state.getOccupancy()) & notOwn;
+            case KING:
+                return Attacks.king(square) & notOwn | getCastlingTargets(state, player, square);
+            default:
+                return EMPTY;
+        }
+    }
+
+    public static long getPawnTargets(ChessState state, Player player, int square) {
+        long empty = ~state.getOccupancy();
+        long captures = state.getOccupancy(player == WHITE ? BLACK : WHITE);
+        if(state.getEnPassantSquare() != -1) captures |= bit(state.getEnPassantSquare());
+
+        long single;
+        long dbl;
+        if(player == WHITE) {
+            single = bit(square) << 8 & empty;
+            dbl = (single & RANK_3) << 8 & empty;
+        } else {
+            single = bit(square) >>> 8 & empty;
+            dbl = (single & RANK_6) >>> 8 & empty;
+        }
+        return single | dbl | Attacks.pawn(player.ordinal(), square) & captures;
+    }
+
+    // the King may not castle out of, through or into check, and every square between King and Rook must be empty
+    public static long getCastlingTargets(ChessState state, Player player, int square) {
+        int home = player == WHITE ? 4 : 60;
+        if(square != home) return EMPTY;
+        int rights = state.getCastlingRights();
+        int kingside = player == WHITE ? ChessState.WHITE_KINGSIDE : ChessState.BLACK_KINGSIDE;
+        int queenside = player == WHITE ? ChessState.WHITE_QUEENSIDE : ChessState.BLACK_QUEENSIDE;
+        if((rights & (kingside | queenside)) == 0) return EMPTY;
+
+        long attacked = state.getAttacks(player == WHITE ? BLACK : WHITE);
+        if(contains(attacked, home)) return EMPTY;
+
+        long occupancy = state.getOccupancy();
+        long targets = EMPTY;
+        if((rights & kingside) != 0
+                && (occupancy & (bit(home + 1) | bit(home + 2))) == 0
+                && (attacked & (bit(home + 1) | bit(home + 2))) == 0) {
+            targets |= bit(home + 2);
+        }
+        if((rights & queenside) != 0
+                && (occupancy & (bit(home - 1) | bit(home - 2) | bit(home - 3))) == 0
+                && (attacked & (bit(home - 1) | bit(home - 2))) == 0) {
+            targets |= bit(home - 2);
+        }
+        return targets;
+    }
+
+    public static boolean isAttacked(ChessState state, int square, Player by) {
+        return getAttackers(state, square, by, state.getOccupancy()) != 0;
+    }
+
+    // every piece of the given player attacking square, treating occupancy as the set of blockers
+    public static long getAttackers(ChessState state, int square, Player by, long occupancy) {
+        if(by == Player.NONE) return EMPTY;
+        long queens = state.getBitboard(by, PieceType.QUEEN);
+        return Attacks.pawn(by == WHITE ? 1 : 0, square) & state.getBitboard(by, PieceType.PAWN)
+                | Attacks.knight(square) & state.getBitboard(by, PieceType.KNIGHT)
+                | Attacks.king(square) & state.getBitboard(by, PieceType.KING)
+                | Attacks.bishop(square, occupancy) & (state.getBitboard(by, PieceType.BISHOP) | queens)
+                | Attacks.rook(square, occupancy) & (state.getBitboard(by, PieceType.ROOK) | queens);
+    }
+
+}
@@ -0,0 +1,71 @@
+package me.curz46.chess4j.move;
+
+import java.util.Arrays;
+
+// reusable buffer of packed moves; no legal position has more than 218 moves, and Fen refuses placements that could
+// not arise in a game, so generators never fill it. a state built by hand can still overflow it, which add reports
+public final class MoveList {
+
+    public static final int CAPACITY = 256;
+
+    private final int[] moves = new int[CAPACITY];
+    private int size;
+
+    public void add(int move) {
+        if(size == CAPACITY) throw new RuntimeException("A MoveList cannot hold more than " + CAPACITY + " moves.");
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    // removes the move at index by moving the last move into its place
+    public void removeUnordered(int index) {
+        moves[index] = moves[--size];
+    }
+
+    public boolean contains(int move) {
+        for(int i = 0; i < size; i++) {
+            if(moves[i] == move) return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < size; i++) {
+            if(i > 0) builder.append(", ");
+            builder.append(Move.toString(moves[i]));
+        }
+        return builder.append(']').toString();
+    }
+
+}
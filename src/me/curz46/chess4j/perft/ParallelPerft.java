@@ -0,0 +1,105 @@
+package me.curz46.chess4j.perft;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// perft split across a ForkJoinPool: the top plies are fanned out into one task per move, each walking its subtree
+// with a plain Perft over its own copy of the position. an optional PerftTable is shared by every task
+public final class ParallelPerft {
+
+    // subtrees shallower than this are not worth the copy of the position a task needs
+    private static final int MIN_SPLIT_DEPTH = 4;
+    // plies from the root at which tasks are still split further, for a few hundred tasks to balance the load
+    private static final int SPLIT_PLIES = 2;
+
+    private final ForkJoinPool pool;
+    private final PerftTable table;
+
+    public ParallelPerft(ForkJoinPool pool, PerftTable table) {
+        this.pool = pool;
+        this.table = table;
+    }
+
+    public ParallelPerft(int threads) {
+        this(new ForkJoinPool(threads), null);
+    }
+
+    // the state itself is only read, so it must not change until this returns
+    public long perft(ChessState state, int depth) {
+        return pool.invoke(new PerftTask(state.copy(), depth, 0));
+    }
+
+    public long divide(ChessState state, int depth, PrintStream out) {
+        if(depth <= 0) return 1;
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+        PerftTask[] tasks = split(state, moves, depth - 1, 1);
+
+        long total = 0;
+        for(PerftTask task : tasks) {
+            pool.execute(task);
+        }
+        for(int i = 0; i < tasks.length; i++) {
+            long nodes = tasks[i].join();
+            out.println(Move.toString(moves.get(i)) + ": " + nodes);
+            total += nodes;
+        }
+        out.println();
+        out.println("Moves: " + moves.size());
+        out.println("Nodes: " + total);
+        return total;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // one task per move, each over its own copy of the position after that move
+    private PerftTask[] split(ChessState state, MoveList moves, int depth, int ply) {
+        PerftTask[] tasks = new PerftTask[moves.size()];
+        for(int i = 0; i < moves.size(); i++) {
+            state.makeMove(moves.get(i));
+            tasks[i] = new PerftTask(state.copy(), depth, ply);
+            state.unmakeMove();
+        }
+        return tasks;
+    }
+
+    private final class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChessState state;
+        private final int depth;
+        private final int ply;
+
+        private PerftTask(ChessState state, int depth, int ply) {
+            this.state = state;
+            this.depth = depth;
+            this.ply = ply;
+        }
+
+        @Override
+        protected Long compute() {
+            if(depth < MIN_SPLIT_DEPTH || ply >= SPLIT_PLIES) return new Perft(state, depth, table).count(depth);
+
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegal(state, moves);
+            PerftTask[] tasks = split(state, moves, depth - 1, ply + 1);
+            invokeAll(tasks);
+            long nodes = 0;
+            for(PerftTask task : tasks) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package me.curz46.chess4j.perft;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+
+// counts the leaf nodes of the legal move tree, the standard correctness oracle for move generation
+public final class Perft {
+
+    private final ChessState state;
+    // one buffer per remaining depth, so the walk never allocates
+    private final MoveList[] moveLists;
+    // optional; null when every subtree is walked
+    private final PerftTable table;
+
+    public Perft(ChessState state, int maxDepth) {
+        this(state, maxDepth, null);
+    }
+
+    public Perft(ChessState state, int maxDepth, PerftTable table) {
+        this.state = state;
+        this.table = table;
+        this.moveLists = new MoveList[Math.max(maxDepth, 1) + 1];
+        for(int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    public static long perft(ChessState state, int depth) {
+        return new Perft(state, depth).count(depth);
+    }
+
+    public long count(int depth) {
+        if(depth <= 0) return 1;
+        if(depth >= moveLists.length) throw new RuntimeException("This Perft was created for a smaller depth.");
+        if(table != null && depth > 1) {
+            long nodes = table.probe(state.getKey(), depth);
+            if(nodes != -1) return nodes;
+        }
+        MoveList moves = moveLists[depth];
+        moves.clear();
+        MoveGenerator.generateLegal(state, moves);
+        // bulk counting: the number of legal moves is the number of leaves one ply down
+        if(depth == 1) return moves.size();
+
+        long nodes = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            state.makeMove(moves.get(i));
+            nodes += count(depth - 1);
+            state.unmakeMove();
+        }
+        if(table != null) table.store(state.getKey(), depth, nodes);
+        return nodes;
+    }
+
+    // prints the node count below each root move, for comparing against a reference engine move by move
+    public long divide(int depth, PrintStream out) {
+        if(depth <= 0) return 1;
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+
+        long total = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            state.makeMove(moves.get(i));
+            long nodes = count(depth - 1);
+            state.unmakeMove();
+            out.println(Move.toString(moves.get(i)) + ": " + nodes);
+            total += nodes;
+        }
+        out.println();
+        out.println("Moves: " + moves.size());
+        out.println("Nodes: " + total);
+        return total;
+    }
+
+    // usage: Perft <depth> [--divide] [--threads n] [--hash mb] [fen]
+    public static void main(String[] args) {
+        if(args.length < 1) {
+            System.out.println("usage: Perft <depth> [--divide] [--threads n] [--hash mb] [fen]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        int threads = 1;
+        int hash = 0;
+        int index = 1;
+        for(; index < args.length && args[index].startsWith("--"); index++) {
+            switch(args[index]) {
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++index]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[++index]);
+                    break;
+                default:
+                    throw new RuntimeException("Unknown option " + args[index] + ".");
+            }
+        }
+        StringBuilder fen = new StringBuilder();
+        for(int i = index; i < args.length; i++) {
+            fen.append(args[i]).append(' ');
+        }
+        ChessState state = Fen.parse(fen.length() == 0 ? Fen.START_POSITION : fen.toString());
+        PerftTable table = hash == 0 ? null : new PerftTable(hash);
+        ParallelPerft parallel = threads == 1 ? null : new ParallelPerft(new ForkJoinPool(threads), table);
+        Perft perft = new Perft(state, depth, table);
+
+        if(divide) {
+            if(parallel == null) perft.divide(depth, System.out);
+            else parallel.divide(state, depth, System.out);
+        } else {
+            for(int d = 1; d <= depth; d++) {
+                long start = System.nanoTime();
+                long nodes = parallel == null ? perft.count(d) : parallel.perft(state, d);
+                long elapsed = Math.max(System.nanoTime() - start, 1);
+                System.out.printf("depth %d: %d nodes in %d ms (%d nps)%n",
+                        d, nodes, elapsed / 1_000_000, (long) (nodes / (elapsed / 1e9)));
+            }
+        }
+        if(parallel != null) parallel.shutdown();
+    }
+
+}
@@ -0,0 +1,52 @@
+package me.curz46.chess4j.perft;
+
+import java.util.Arrays;
+
+// node counts of already walked subtrees, keyed by position and depth, so transpositions are only counted once.
+// always-replace and lock-free: each slot is the checked key xor-ed with the count, then the count, and a slot
+// whose halves do not xor back to the probed key is treated as a miss, which also covers writes torn by a racing
+// thread
+public final class PerftTable {
+
+    private static final long DEPTH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long[] table;
+    private final int mask;
+
+    public PerftTable(int megabytes) {
+        if(megabytes < 1) throw new RuntimeException("A PerftTable needs at least one megabyte.");
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / (2 * Long.BYTES));
+        entries = Math.min(entries, 1L << 29);
+        this.table = new long[(int) entries * 2];
+        this.mask = (int) entries - 1;
+    }
+
+    // the stored node count, or -1 when there is none
+    public long probe(long key, int depth) {
+        long check = check(key, depth);
+        int index = index(check);
+        long nodes = table[index + 1];
+        return (table[index] ^ nodes) == check ? nodes : -1;
+    }
+
+    public void store(long key, int depth, long nodes) {
+        long check = check(key, depth);
+        int index = index(check);
+        table[index] = check ^ nodes;
+        table[index + 1] = nodes;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    // the same position counts differently at each depth, so the depth is folded into the key
+    private static long check(long key, int depth) {
+        return key ^ depth * DEPTH_MULTIPLIER;
+    }
+
+    private int index(long check) {
+        return ((int) (check >>> 32) & mask) * 2;
+    }
+
+}
@@ -0,0 +1,75 @@
+package me.curz46.chess4j.pgn;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+
+import java.util.Collections;
+import java.util.Map;
+
+// one game read from a PGN file: its tag pairs, the main line as packed moves and the result token. a game whose
+// movetext stops making sense keeps the moves up to that point and reports why through getError
+public final class PgnGame {
+
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+    private final String error;
+
+    public PgnGame(Map<String, String> tags, int[] moves, String result, String error) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = moves;
+        this.result = result;
+        this.error = error;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    // "1-0", "0-1", "1/2-1/2" or "*"
+    public String getResult() {
+        return result;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    // why the movetext could not be read to the end, or null
+    public String getError() {
+        return error;
+    }
+
+    // the position the game starts from, honouring a FEN tag
+    public ChessState getStartPosition() {
+        String fen = tags.get("FEN");
+        return Fen.parse(fen == null ? Fen.START_POSITION : fen);
+    }
+
+    // plays the moves through ChessBoard.doMove, returning the board in the final position
+    public ChessBoard replay() {
+        ChessBoard board = new ChessBoard(getStartPosition());
+        for(int move : moves) {
+            board.doMove(move);
+        }
+        return board;
+    }
+
+}
@@ -0,0 +1,327 @@
+package me.curz46.chess4j.pgn;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.move.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// streams games out of a PGN file through a fixed-size buffer, so memory use does not depend on the file's size.
+// every SAN move is decoded against the legal moves of the game's position as it is read; comments, variations and
+// annotation glyphs are skipped. games come out one at a time through the Iterator or as a Stream
+public final class PgnReader implements Iterator<PgnGame>, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // every game exported by the usual tools starts with the Event tag, so this marks a safe place to split a file
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.US_ASCII);
+
+    private final ReadableByteChannel channel;
+    // bytes this reader may still take from the channel, for readers over part of a file
+    private long remaining;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int position;
+    private int limit;
+
+    // scratch space reused for every game
+    private final StringBuilder token = new StringBuilder();
+    private byte[] text = new byte[256];
+    private int[] moves = new int[256];
+    private final MoveList legalMoves = new MoveList();
+
+    private PgnGame next;
+    private boolean finished;
+
+    public PgnReader(ReadableByteChannel channel) {
+        this(channel, Long.MAX_VALUE);
+    }
+
+    private PgnReader(ReadableByteChannel channel, long length) {
+        this.channel = channel;
+        this.remaining = length;
+    }
+
+    public static PgnReader open(Path path) {
+        try {
+            return new PgnReader(FileChannel.open(path));
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // cuts the file into about the given number of pieces at game boundaries, each read by its own PgnReader, so
+    // that they can be consumed on different threads
+    public static List<PgnReader> split(Path path, int parts) {
+        if(parts < 1) throw new RuntimeException("A PGN file cannot be split into less than one part.");
+        try(FileChannel file = FileChannel.open(path)) {
+            long size = file.size();
+            long[] starts = new long[parts + 1];
+            starts[parts] = size;
+            for(int i = 1; i < parts; i++) {
+                starts[i] = Math.max(findGameStart(file, size * i / parts, size), starts[i - 1]);
+            }
+            List<PgnReader> readers = new ArrayList<>(parts);
+            for(int i = 0; i < parts; i++) {
+                long length = Math.min(starts[i + 1], size) - starts[i];
+                if(length <= 0) continue;
+                FileChannel channel = FileChannel.open(path);
+                channel.position(starts[i]);
+                readers.add(new PgnReader(channel, length));
+            }
+            return readers;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // every game in the file, read by up to the given number of threads at once; order is not preserved
+    public static Stream<PgnGame> parallelStream(Path path, int parts) {
+        List<PgnReader> readers = split(path, parts);
+        return readers.parallelStream()
+                .flatMap(PgnReader::stream)
+                .onClose(() -> readers.forEach(PgnReader::close));
+    }
+
+    public Stream<PgnGame> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next == null && !finished) {
+            try {
+                next = readGame();
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public PgnGame next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        PgnGame game = next;
+        next = null;
+        return game;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PgnGame readGame() throws IOException {
+        int c = skipWhitespace();
+        if(c == -1) return null;
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        while(c == '[') {
+            read();
+            readTag(tags);
+            c = skipWhitespace();
+        }
+
+        String error = null;
+        ChessState state = null;
+        try {
+            String fen = tags.get("FEN");
+            state = Fen.parse(fen == null ? Fen.START_POSITION : fen);
+        } catch(RuntimeException e) {
+            error = e.getMessage();
+        }
+
+        int count = 0;
+        String result = "*";
+        while(true) {
+            c = skipWhitespace();
+            // a tag section without a result before it belongs to the next game
+            if(c == -1 || c == '[') break;
+            if(c == '{') {
+                skipPast('}');
+                continue;
+            }
+            if(c == ';' || c == '%') {
+                skipPast('\n');
+                continue;
+            }
+            if(c == '(') {
+                read();
+                skipVariation();
+                continue;
+            }
+            if(c == ')' || c == ']' || c == '}') {
+                read();
+                continue;
+            }
+
+            readToken();
+            String terminator = result(token);
+            if(terminator != null) {
+                result = terminator;
+                break;
+            }
+            // move numbers may be glued to the move, as in "12.e4" or "12...e5"
+            int start = 0;
+            while(start < token.length() && Character.isDigit(token.charAt(start))) start++;
+            while(start < token.length() && token.charAt(start) == '.') start++;
+            if(start == token.length() || token.charAt(start) == '$' || error != null) continue;
+            token.delete(0, start);
+
+            try {
+                int move = San.parse(state, token, legalMoves);
+                state.makeMove(move);
+                if(count == moves.length) moves = Arrays.copyOf(moves, count * 2);
+                moves[count++] = move;
+            } catch(RuntimeException e) {
+                error = "Move " + state.getFullmoveNumber() + (state.getTurn() == Player.WHITE ? ". " : "... ")
+                        + e.getMessage();
+            }
+        }
+        return new PgnGame(tags, Arrays.copyOf(moves, count), result, error);
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        token.setLength(0);
+        int c = skipWhitespace();
+        while(c != -1 && c != '"' && c != ']' && !isWhitespace(c)) {
+            token.append((char) read());
+            c = peek();
+        }
+        String name = token.toString();
+        c = skipWhitespace();
+
+        int length = 0;
+        if(c == '"') {
+            read();
+            while((c = read()) != -1 && c != '"') {
+                if(c == '\\') c = read();
+                if(c == -1) break;
+                if(length == text.length) text = Arrays.copyOf(text, length * 2);
+                text[length++] = (byte) c;
+            }
+        }
+        skipPast(']');
+        tags.put(name, new String(text, 0, length, StandardCharsets.UTF_8));
+    }
+
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c = peek();
+        while(c != -1 && !isWhitespace(c) && c != '{' && c != '(' && c != ')' && c != ';' && c != '[' && c != ']') {
+            token.append((char) read());
+            c = peek();
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while((c = read()) != -1) {
+            if(c == '(') depth++;
+            else if(c == ')' && --depth == 0) return;
+            else if(c == '{') skipPast('}');
+            else if(c == ';') skipPast('\n');
+        }
+    }
+
+    private void skipPast(int end) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while(c != -1 && c != end);
+    }
+
+    // returns the first character which is not whitespace without consuming it
+    private int skipWhitespace() throws IOException {
+        int c;
+        while((c = peek()) != -1 && isWhitespace(c)) {
+            read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if(position == limit && !fill()) return -1;
+        return bytes[position++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if(position == limit && !fill()) return -1;
+        return bytes[position] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if(remaining <= 0) return false;
+        buffer.clear();
+        if(remaining < BUFFER_SIZE) buffer.limit((int) remaining);
+        int read = channel.read(buffer);
+        if(read <= 0) return false;
+        remaining -= read;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    // a UTF-8 byte order mark is skipped along with the whitespace
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == 0xEF || c == 0xBB || c == 0xBF;
+    }
+
+    private static String result(CharSequence token) {
+        if("1-0".contentEquals(token)) return "1-0";
+        if("0-1".contentEquals(token)) return "0-1";
+        if("1/2-1/2".contentEquals(token)) return "1/2-1/2";
+        if("*".contentEquals(token)) return "*";
+        return null;
+    }
+
+    // the offset of the first game starting at or after from, or end when there is none
+    private static long findGameStart(FileChannel file, long from, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // start one byte early so a game starting exactly at from is still preceded by its newline
+        long offset = Math.max(from - 1, 0);
+        int matched = 0;
+        while(offset < end) {
+            buffer.clear();
+            int read = file.read(buffer, offset);
+            if(read <= 0) break;
+            for(int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if(b == GAME_START[matched]) {
+                    if(++matched == GAME_START.length) return offset + i - GAME_START.length + 2;
+                } else {
+                    matched = b == GAME_START[0] ? 1 : 0;
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+}
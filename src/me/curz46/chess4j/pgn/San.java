@@ -0,0 +1,175 @@
+package me.curz46.chess4j.pgn;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// Standard Algebraic Notation, e.g. "Nbd7", "exd5", "e8=Q+" or "O-O". moves are matched against the legal moves of
+// the position, so a SAN string only decodes when it names exactly one of them. decoding only generates the moves
+// of the kind of piece named
+public final class San {
+
+    // indexed by PieceType ordinal
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private San() {
+    }
+
+    public static int parse(ChessState state, CharSequence san) {
+        return parse(state, san, new MoveList());
+    }
+
+    // decodes san into a packed move for the side to move, using moves as scratch space; nothing is allocated unless
+    // the move is invalid
+    public static int parse(ChessState state, CharSequence san, MoveList moves) {
+        int end = san.length();
+        // check, mate and annotation suffixes carry no information about the move itself
+        while(end > 0 && isSuffix(san.charAt(end - 1))) end--;
+        if(end < 2) throw invalid("Invalid SAN move", san);
+
+        Player player = state.getTurn();
+        char first = san.charAt(0);
+        if(first == 'O' || first == '0') {
+            boolean queenside = end >= 5;
+            moves.clear();
+            MoveGenerator.generate(state, state.getBitboard(player, PieceType.KING), moves);
+            for(int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if(Move.isCastle(move) && (Move.getTo(move) < Move.getFrom(move)) == queenside
+                        && MoveGenerator.isLegal(state, move)) return move;
+            }
+            throw invalid("Illegal castling move", san);
+        }
+
+        PieceType type = pieceType(first);
+        int start = type == PieceType.PAWN ? 0 : 1;
+
+        PieceType promotion = null;
+        if(type == PieceType.PAWN) {
+            char last = san.charAt(end - 1);
+            if(last >= 'A' && last <= 'Z') {
+                promotion = pieceType(last);
+                if(promotion == PieceType.PAWN || promotion == PieceType.KING) throw invalid("Invalid promotion", san);
+                end--;
+                if(end > 0 && san.charAt(end - 1) == '=') end--;
+            }
+        }
+        if(end - start < 2) throw invalid("Invalid SAN move", san);
+
+        int toFile = san.charAt(end - 2) - 'a';
+        int toRank = san.charAt(end - 1) - '1';
+        if(!isOnBoard(toFile, toRank)) throw invalid("Invalid SAN destination", san);
+        int to = square(toFile, toRank);
+
+        // whatever remains between the piece and the destination disambiguates by file and/or rank
+        int fromFile = -1;
+        int fromRank = -1;
+        for(int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if(c >= 'a' && c <= 'h') fromFile = c - 'a';
+            else if(c >= '1' && c <= '8') fromRank = c - '1';
+            else if(c != 'x' && c != ':' && c != '-') throw invalid("Invalid SAN move", san);
+        }
+
+        // only the named kind of piece is generated, and only moves reaching the destination are checked for legality
+        long candidates = state.getBitboard(player, type);
+        if(fromFile != -1) candidates &= FILE_A << fromFile;
+        if(fromRank != -1) candidates &= RANK_1 << fromRank * 8;
+        moves.clear();
+        MoveGenerator.generate(state, candidates, moves);
+
+        int found = Move.NONE;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if(Move.getTo(move) != to
+                    || (Move.isPromotion(move) ? Move.getPromotion(move) : null) != promotion
+                    || !MoveGenerator.isLegal(state, move)) {
+                continue;
+            }
+            if(found != Move.NONE) throw invalid("Ambiguous SAN move", san);
+            found = move;
+        }
+        if(found == Move.NONE) throw invalid("Illegal SAN move", san);
+        return found;
+    }
+
+    // the shortest unambiguous SAN for a legal move, with a check or mate suffix
+    public static String toSan(ChessState state, int move) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+        if(!moves.contains(move)) throw new RuntimeException("Cannot write an illegal move as SAN.");
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        StringBuilder builder = new StringBuilder(8);
+        if(Move.isCastle(move)) {
+            builder.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            PieceType type = state.getPiece(from).getType();
+            if(type == PieceType.PAWN) {
+                if(Move.isCapture(move)) builder.append((char) ('a' + file(from)));
+            } else {
+                builder.append(PIECE_LETTERS.charAt(type.ordinal()));
+                boolean sameFile = false;
+                boolean sameRank = false;
+                boolean ambiguous = false;
+                for(int i = 0; i < moves.size(); i++) {
+                    int other = moves.get(i);
+                    int otherFrom = Move.getFrom(other);
+                    if(other == move || Move.getTo(other) != to || otherFrom == from
+                            || state.getPiece(otherFrom).getType() != type) continue;
+                    ambiguous = true;
+                    if(file(otherFrom) == file(from)) sameFile = true;
+                    if(rank(otherFrom) == rank(from)) sameRank = true;
+                }
+                if(ambiguous && (!sameFile || sameRank)) builder.append((char) ('a' + file(from)));
+                if(ambiguous && sameFile) builder.append((char) ('1' + rank(from)));
+            }
+            if(Move.isCapture(move)) builder.append('x');
+            builder.append((char) ('a' + file(to))).append((char) ('1' + rank(to)));
+            if(Move.isPromotion(move)) {
+                builder.append('=').append(PIECE_LETTERS.charAt(Move.getPromotion(move).ordinal()));
+            }
+        }
+
+        state.makeMove(move);
+        if(state.isInCheck()) {
+            moves.clear();
+            MoveGenerator.generateLegal(state, moves);
+            builder.append(moves.isEmpty() ? '#' : '+');
+        }
+        state.unmakeMove();
+        return builder.toString();
+    }
+
+    private static PieceType pieceType(char c) {
+        switch(c) {
+            case 'N':
+                return PieceType.KNIGHT;
+            case 'B':
+                return PieceType.BISHOP;
+            case 'R':
+                return PieceType.ROOK;
+            case 'Q':
+                return PieceType.QUEEN;
+            case 'K':
+                return PieceType.KING;
+            default:
+                return PieceType.PAWN;
+        }
+    }
+
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static RuntimeException invalid(String message, CharSequence san) {
+        return new RuntimeException(message + ": " + san);
+    }
+
+}
@@ -0,0 +1,73 @@
+package me.curz46.chess4j.record;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.pgn.PgnGame;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// a game as stored by GameRecordWriter: tag pairs, the starting position (when it is not the usual one), the moves
+// and the result
+public final class GameRecord {
+
+    private final Map<String, String> tags;
+    private final String fen;
+    private final int[] moves;
+    private final String result;
+
+    // fen may be null for the standard starting position
+    public GameRecord(Map<String, String> tags, String fen, int[] moves, String result) {
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.fen = fen;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    // the valid part of a game read from PGN
+    public static GameRecord of(PgnGame game) {
+        Map<String, String> tags = new LinkedHashMap<>(game.getTags());
+        String fen = tags.remove("FEN");
+        tags.remove("SetUp");
+        return new GameRecord(tags, fen, game.getMoves(), game.getResult());
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public ChessState getStartPosition() {
+        return Fen.parse(fen == null ? Fen.START_POSITION : fen);
+    }
+
+    public ChessBoard replay() {
+        ChessBoard board = new ChessBoard(getStartPosition());
+        for(int move : moves) {
+            board.doMove(move);
+        }
+        return board;
+    }
+
+}
@@ -0,0 +1,136 @@
+package me.curz46.chess4j.record;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.move.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// reads games written by GameRecordWriter. each move byte is resolved by generating the position's pseudo-legal
+// moves and playing the one at that index, with no legality checks, since the writer only accepts legal games
+public final class GameRecordReader implements Iterator<GameRecord>, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private final MoveList moves = new MoveList();
+    private int[] gameMoves = new int[64];
+
+    public GameRecordReader(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    public GameRecordReader(InputStream in, int bufferSize) {
+        if(bufferSize < 1) throw new RuntimeException("A GameRecordReader needs a buffer of at least one byte.");
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        for(byte b : GameRecordWriter.MAGIC) {
+            if(readByte() != (b & 0xFF)) throw new RuntimeException("Not a game record file.");
+        }
+        int version = readByte();
+        if(version != GameRecordWriter.VERSION) throw new RuntimeException("Unsupported game record version " + version + ".");
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peekByte() != -1;
+    }
+
+    @Override
+    public GameRecord next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        int tagCount = readVarint();
+        Map<String, String> tags = new LinkedHashMap<>();
+        for(int i = 0; i < tagCount; i++) {
+            tags.put(readString(), readString());
+        }
+        String fen = readString();
+        int result = readByte();
+        if(result < 0 || result >= GameRecordWriter.RESULTS.length) throw corrupt();
+
+        ChessState state = Fen.parse(fen.isEmpty() ? Fen.START_POSITION : fen);
+        int count = readVarint();
+        if(gameMoves.length < count) gameMoves = new int[Math.max(count, gameMoves.length * 2)];
+        for(int i = 0; i < count; i++) {
+            int index = readByte();
+            MoveIndex.generateSorted(state, moves);
+            if(index < 0 || index >= moves.size()) throw corrupt();
+            int move = moves.get(index);
+            state.makeMove(move);
+            gameMoves[i] = move;
+        }
+        return new GameRecord(tags, fen.isEmpty() ? null : fen, Arrays.copyOf(gameMoves, count),
+                GameRecordWriter.RESULTS[result]);
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String readString() {
+        int length = readVarint();
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            int b = readByte();
+            if(b == -1) throw corrupt();
+            bytes[i] = (byte) b;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            if(b == -1) throw corrupt();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw corrupt();
+    }
+
+    private int readByte() {
+        if(position == limit && !fill()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    private int peekByte() {
+        if(position == limit && !fill()) return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    private boolean fill() {
+        try {
+            int read = in.read(buffer, 0, buffer.length);
+            if(read <= 0) return false;
+            position = 0;
+            limit = read;
+            return true;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RuntimeException corrupt() {
+        return new RuntimeException("Corrupt or truncated game record.");
+    }
+
+}
@@ -0,0 +1,150 @@
+package me.curz46.chess4j.record;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// writes games in the compact binary record format: after a file header of "C4JR" and a version byte, each game is
+// its tags (a varint count, then length-prefixed UTF-8 names and values), its starting FEN (empty for the usual
+// start), a result byte, a varint move count and one byte per move, the move's MoveIndex in its position
+public final class GameRecordWriter implements Closeable {
+
+    static final byte[] MAGIC = {'C', '4', 'J', 'R'};
+    static final int VERSION = 1;
+    // indexed by result byte
+    static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private final MoveList moves = new MoveList();
+    // the move indices of the game being written, grown as needed
+    private byte[] indices = new byte[256];
+
+    public GameRecordWriter(OutputStream out) {
+        this(out, BUFFER_SIZE);
+    }
+
+    // a small buffer suits writing a single game to memory
+    public GameRecordWriter(OutputStream out, int bufferSize) {
+        if(bufferSize < 1) throw new RuntimeException("A GameRecordWriter needs a buffer of at least one byte.");
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+        for(byte b : MAGIC) {
+            writeByte(b);
+        }
+        writeByte(VERSION);
+    }
+
+    // every move is checked for legality as the game is replayed, and only once the whole game has been encoded is
+    // any of it written, so a rejected game leaves the stream as it was and never holds a corrupt game
+    public void write(GameRecord game) {
+        ChessState state = game.getStartPosition();
+        int count = game.getMoveCount();
+        if(indices.length < count) indices = new byte[Math.max(count, indices.length * 2)];
+        for(int i = 0; i < count; i++) {
+            int move = game.getMove(i);
+            MoveIndex.generateSorted(state, moves);
+            int index = indexOf(moves, move);
+            if(index == -1 || !MoveGenerator.isLegal(state, move)) {
+                throw new RuntimeException("Cannot record illegal move " + Move.toString(move) + " at ply " + i + ".");
+            }
+            if(index >= MoveIndex.LIMIT) throw new RuntimeException("Move index " + index + " does not fit a byte.");
+            indices[i] = (byte) index;
+            state.makeMove(move);
+        }
+
+        writeVarint(game.getTags().size());
+        for(Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            writeString(tag.getKey());
+            writeString(tag.getValue());
+        }
+        writeString(game.getFen() == null ? "" : game.getFen());
+        writeByte(resultByte(game.getResult()));
+        writeVarint(count);
+        for(int i = 0; i < count; i++) {
+            writeByte(indices[i]);
+        }
+    }
+
+    public void flush() {
+        try {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            out.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int resultByte(String result) {
+        for(int i = 0; i < RESULTS.length; i++) {
+            if(RESULTS[i].equals(result)) return i;
+        }
+        return 0;
+    }
+
+    // binary search, since the moves are sorted
+    private static int indexOf(MoveList moves, int move) {
+        int low = 0;
+        int high = moves.size() - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = moves.get(middle);
+            if(value < move) low = middle + 1;
+            else if(value > move) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        for(byte b : bytes) {
+            writeByte(b);
+        }
+    }
+
+    // seven bits per byte, low bits first, with the top bit set on every byte but the last
+    private void writeVarint(int value) {
+        while((value & ~0x7F) != 0) {
+            writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        if(position == buffer.length) {
+            try {
+                out.write(buffer, 0, position);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+}
@@ -0,0 +1,32 @@
+package me.curz46.chess4j.record;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+// a move's number in the position's pseudo-legal moves sorted by packed value. sorting makes the numbering depend
+// only on the position, not on the order the generator happens to produce moves in, and every legal move is also
+// pseudo-legal, so a legal game always encodes; decoding then needs no legality checks
+final class MoveIndex {
+
+    // fewer pseudo-legal moves than this in any reachable position, so an index fits in a byte
+    static final int LIMIT = 256;
+
+    private MoveIndex() {
+    }
+
+    static void generateSorted(ChessState state, MoveList moves) {
+        moves.clear();
+        MoveGenerator.generate(state, moves);
+        // insertion sort: a few dozen moves, and the list is already nearly ordered by square
+        for(int i = 1; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int j = i - 1;
+            for(; j >= 0 && moves.get(j) > move; j--) {
+                moves.set(j + 1, moves.get(j));
+            }
+            moves.set(j + 1, move);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package me.curz46.chess4j.search;
+
+import me.curz46.chess4j.ChessState;
+
+// lazy SMP: every thread runs its own iterative deepening search over its own copy of the position, and the threads
+// cooperate only through the shared TranspositionTable. the calling thread does the main search and its result is
+// returned; helpers are stopped as soon as it finishes. with one thread this is exactly a single Search
+public final class ParallelSearch {
+
+    private final int threads;
+    private final TranspositionTable table;
+    private volatile Search main;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if(threads < 1) throw new RuntimeException("A ParallelSearch needs at least one thread.");
+        this.threads = threads;
+        this.table = table;
+    }
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(64));
+    }
+
+    // the position is searched in place by the calling thread, as with Search, and is restored on return. node limits
+    // apply to the main thread only, but the result counts the nodes of every thread
+    public SearchResult search(ChessState position, SearchLimits limits) {
+        Search main = new Search(position, table);
+        this.main = main;
+        if(threads == 1) return main.search(limits);
+        // one generation for the whole search, so no thread ages the entries another has just stored
+        table.newSearch();
+        main.setNewGeneration(false);
+
+        Search[] helpers = new Search[threads - 1];
+        Thread[] workers = new Thread[threads - 1];
+        for(int i = 0; i < helpers.length; i++) {
+            Search helper = new Search(position.copy(), table);
+            // half of the helpers skip a depth, so they tend to fill in entries the main thread is about to need
+            helper.setStartDepth(1 + (i & 1));
+            helper.setNewGeneration(false);
+            helpers[i] = helper;
+            workers[i] = new Thread(() -> helper.search(limits), "chess4j-search-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        SearchResult result = main.search(limits);
+        long nodes = result.getNodes();
+        for(int i = 0; i < helpers.length; i++) {
+            // a helper may not have started yet, in which case it would reset its stop flag; keep stopping it
+            try {
+                while(workers[i].isAlive()) {
+                    helpers[i].stop();
+                    workers[i].join(1);
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while stopping the search threads.", e);
+            }
+            nodes += helpers[i].getNodes();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getMillis(), result.getPrincipalVariation());
+    }
+
+    // may be called from any thread; the running search returns its last completed iteration shortly after
+    public void stop() {
+        Search main = this.main;
+        if(main != null) main.stop();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+}
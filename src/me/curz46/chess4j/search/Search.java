@@ -0,0 +1,380 @@
+package me.curz46.chess4j.search;
+
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.eval.Evaluator;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+
+import java.util.Arrays;
+
+import static me.curz46.chess4j.Player.BLACK;
+import static me.curz46.chess4j.Player.WHITE;
+import static me.curz46.chess4j.bitboard.Bitboards.*;
+
+// negamax alpha-beta with iterative deepening and a quiescence search over captures. the state is searched in place
+// through makeMove/unmakeMove and is back in its original position when search returns
+public final class Search {
+
+    public static final int MATE = 32000;
+    public static final int INFINITY = MATE + 1;
+
+    // plies from the root, including quiescence and check extensions
+    private static final int MAX_PLY = 128;
+    // scores beyond this are mates, stored in the table relative to the node rather than the root
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+    // indexed by PieceType ordinal
+    private static final int[] VALUES = {100, 320, 330, 500, 900, 0, 0};
+
+    // ordering bands; history scores are kept below KILLER_SCORE
+    private static final int PV_SCORE = 1 << 24;
+    private static final int CAPTURE_SCORE = 1 << 22;
+    private static final int KILLER_SCORE = 1 << 21;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final ChessState state;
+    private final TranspositionTable table;
+    private final Evaluator evaluator = new Evaluator();
+    // one move buffer and score array per ply, so the search never allocates
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][MoveList.CAPACITY];
+    // triangular principal variation table: pv[ply] holds the best line found from ply onwards
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    // two quiet moves per ply which recently caused a beta cutoff
+    private final int[][] killers = new int[MAX_PLY][2];
+    // indexed by (Player ordinal * 64 + from) * 64 + to, rewarding quiet moves which caused a cutoff
+    private final int[] history = new int[2 * 64 * 64];
+
+    private int[] rootPv = new int[0];
+    // helper threads of a parallel search start deeper than 1 so that they run ahead of the main thread
+    private int startDepth = 1;
+    // whether search() starts a new table generation; a parallel search starts one for all its threads instead
+    private boolean newGeneration = true;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopped;
+
+    // uses a table shared by every search made this way, so repeated searches neither reallocate it nor lose what
+    // earlier ones stored
+    public Search(ChessState state) {
+        this(state, SharedTable.TABLE);
+    }
+
+    // searches sharing a table reuse each other's results, including across successive moves of a game
+    public Search(ChessState state, TranspositionTable table) {
+        this.state = state;
+        this.table = table;
+        for(int i = 0; i < MAX_PLY; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    public static SearchResult search(ChessState position, SearchLimits limits) {
+        return new Search(position).search(limits);
+    }
+
+    public SearchResult search(SearchLimits limits) {
+        long start = System.nanoTime();
+        nodes = 0;
+        nodeLimit = limits.getNodes();
+        deadline = limits.getMillis() == 0 ? 0 : start + limits.getMillis() * 1_000_000L;
+        stopped = false;
+        rootPv = new int[0];
+        if(newGeneration) table.newSearch();
+        for(int[] pair : killers) {
+            pair[0] = pair[1] = Move.NONE;
+        }
+        // keep what earlier searches learnt, but let this one outweigh it
+        for(int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+
+        SearchResult result = null;
+        for(int depth = Math.min(startDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY, true);
+            // an interrupted iteration is only trusted when there is nothing better to fall back on
+            if(stopped && result != null) break;
+            rootPv = Arrays.copyOf(pv[0], pvLength[0]);
+            result = new SearchResult(rootPv.length == 0 ? Move.NONE : rootPv[0], score, depth, nodes,
+                    (System.nanoTime() - start) / 1_000_000, rootPv);
+            if(stopped) break;
+            // a mate found within the full-width depth cannot be improved upon
+            if(Math.abs(score) >= MATE - depth) break;
+        }
+        if(result.getBestMove() == Move.NONE) result = fallback(result, start);
+        return result;
+    }
+
+    // may be called from another thread; the search returns its last completed iteration shortly after
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // the evaluator is owned by this search, so its pawn cache counters cover this search's thread only
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    void setStartDepth(int startDepth) {
+        this.startDepth = startDepth;
+    }
+
+    void setNewGeneration(boolean newGeneration) {
+        this.newGeneration = newGeneration;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, boolean onPv) {
+        if(depth <= 0) return quiesce(ply, alpha, beta);
+        pvLength[ply] = ply;
+        if((++nodes & 2047) == 0) checkLimits();
+        if(stopped) return 0;
+
+        if(ply > 0) {
+            if(state.getHalfmoveClock() >= 100 || state.getRepetitionCount() > 1) return 0;
+            // no line from here can beat a mate already found closer to the root
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if(alpha >= beta) return alpha;
+        }
+        if(ply >= MAX_PLY - 1) return evaluator.evaluate(state);
+
+        long key = state.getKey();
+        long entry = table.probe(key);
+        if(entry != 0 && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if(bound == TranspositionTable.BOUND_EXACT
+                    || bound == TranspositionTable.BOUND_LOWER && score >= beta
+                    || bound == TranspositionTable.BOUND_UPPER && score <= alpha) {
+                return score;
+            }
+        }
+
+        Player player = state.getTurn();
+        boolean inCheck = isInCheck(player);
+        if(inCheck) depth++;
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generate(state, moves);
+        int pvMove = onPv && ply < rootPv.length ? rootPv[ply] : Move.NONE;
+        int hashMove = entry == 0 ? Move.NONE : TranspositionTable.getMove(entry);
+        scoreMoves(ply, moves, pvMove != Move.NONE ? pvMove : hashMove);
+
+        int originalAlpha = alpha;
+        int bestMove = Move.NONE;
+        int legal = 0;
+        int best = -INFINITY;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            state.makeMove(move);
+            if(isInCheck(player)) {
+                state.unmakeMove();
+                continue;
+            }
+            legal++;
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, move == pvMove);
+            state.unmakeMove();
+            if(stopped) return 0;
+
+            if(score > best) {
+                best = score;
+                bestMove = move;
+                if(score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if(score >= beta) {
+                        if(!Move.isCapture(move) && !Move.isPromotion(move)) rewardQuiet(ply, player, move, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        if(legal == 0) return inCheck ? -MATE + ply : 0;
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        // a fail-low node has no reliable best move
+        table.store(key, bound == TranspositionTable.BOUND_UPPER ? Move.NONE : bestMove, toTable(best, ply), depth,
+                bound);
+        return best;
+    }
+
+    // resolves captures (and promotions) until the position is quiet, so the evaluation is never taken mid-exchange.
+    // when in check every evasion is searched instead, since standing pat is not an option
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if((++nodes & 2047) == 0) checkLimits();
+        if(stopped) return 0;
+        if(ply >= MAX_PLY - 1) return evaluator.evaluate(state);
+
+        Player player = state.getTurn();
+        boolean inCheck = isInCheck(player);
+        int best = -INFINITY;
+        if(!inCheck) {
+            best = evaluator.evaluate(state);
+            if(best >= beta) return best;
+            if(best > alpha) alpha = best;
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        MoveGenerator.generate(state, moves);
+        scoreMoves(ply, moves, Move.NONE);
+
+        int legal = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            if(!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) continue;
+            state.makeMove(move);
+            if(isInCheck(player)) {
+                state.unmakeMove();
+                continue;
+            }
+            legal++;
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            state.unmakeMove();
+            if(stopped) return 0;
+
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if(score >= beta) break;
+                }
+            }
+        }
+        if(inCheck && legal == 0) return -MATE + ply;
+        return best;
+    }
+
+    private static int toTable(int score, int ply) {
+        return score >= MATE_BOUND ? score + ply : score <= -MATE_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE_BOUND ? score - ply : score <= -MATE_BOUND ? score + ply : score;
+    }
+
+    private boolean isInCheck(Player player) {
+        long king = state.getBitboard(player, PieceType.KING);
+        return king != 0 && MoveGenerator.isAttacked(state, lowest(king), player == WHITE ? BLACK : WHITE);
+    }
+
+    // the previous iteration's line (or the table's move) first, then captures by most valuable victim and least valuable attacker,
+    // then killers and finally quiet moves by history
+    private void scoreMoves(int ply, MoveList moves, int pvMove) {
+        int[] scores = moveScores[ply];
+        int side = state.getTurn().ordinal();
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.getFrom(move);
+            int to = Move.getTo(move);
+            int score;
+            if(move == pvMove) {
+                score = PV_SCORE;
+            } else if(Move.isCapture(move) || Move.isPromotion(move)) {
+                int victim = Move.isEnPassant(move) ? VALUES[PieceType.PAWN.ordinal()]
+                        : VALUES[state.getPiece(to).getType().ordinal()];
+                int promotion = Move.isPromotion(move) ? VALUES[Move.getPromotion(move).ordinal()] : 0;
+                score = CAPTURE_SCORE + (victim + promotion) * 8 - state.getPiece(from).getType().ordinal();
+            } else if(move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if(move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[(side * 64 + from) * 64 + to];
+            }
+            scores[i] = score;
+        }
+    }
+
+    // selection sort one step at a time: most nodes cut off after the first few moves, so sorting fully is wasted
+    private int nextMove(int ply, MoveList moves, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for(int i = index + 1; i < moves.size(); i++) {
+            if(scores[i] > scores[best]) best = i;
+        }
+        if(best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    private void rewardQuiet(int ply, Player player, int move, int depth) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = (player.ordinal() * 64 + Move.getFrom(move)) * 64 + Move.getTo(move);
+        history[index] += depth * depth;
+        if(history[index] >= HISTORY_LIMIT) {
+            for(int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private void checkLimits() {
+        if(nodeLimit != 0 && nodes >= nodeLimit || deadline != 0 && System.nanoTime() >= deadline) stopped = true;
+    }
+
+    // the first iteration was cut short before any move was scored; any legal move beats returning none
+    private SearchResult fallback(SearchResult result, long start) {
+        MoveList moves = moveLists[0];
+        moves.clear();
+        MoveGenerator.generateLegal(state, moves);
+        if(moves.isEmpty()) return result;
+        return new SearchResult(moves.get(0), result.getScore(), 0, nodes, (System.nanoTime() - start) / 1_000_000,
+                new int[]{moves.get(0)});
+    }
+
+    // usage: Search <depth> [--threads n] [fen]
+    public static void main(String[] args) {
+        if(args.length < 1) {
+            System.out.println("usage: Search <depth> [--threads n] [fen]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        boolean hasThreads = args.length > 2 && args[1].equals("--threads");
+        int threads = hasThreads ? Integer.parseInt(args[2]) : 1;
+        StringBuilder fen = new StringBuilder();
+        for(int i = hasThreads ? 3 : 1; i < args.length; i++) {
+            fen.append(args[i]).append(' ');
+        }
+        ChessState state = Fen.parse(fen.length() == 0 ? Fen.START_POSITION : fen.toString());
+        SearchResult result = new ParallelSearch(threads).search(state, SearchLimits.depth(depth));
+        System.out.println(result);
+        System.out.println("nps " + result.getNodes() * 1000 / Math.max(result.getMillis(), 1));
+    }
+
+    // created on first use; the table is safe to share between searches running at once
+    private static final class SharedTable {
+
+        private static final TranspositionTable TABLE = new TranspositionTable(DEFAULT_TABLE_MEGABYTES);
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package me.curz46.chess4j.search;
+
+// when a search should stop: after a depth, a node count or a time budget, whichever comes first. zero means no limit
+public final class SearchLimits {
+
+    public static final int MAX_DEPTH = 64;
+
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+
+    public SearchLimits(int depth, long nodes, long millis) {
+        if(depth < 0 || nodes < 0 || millis < 0) throw new RuntimeException("Search limits cannot be negative.");
+        this.depth = depth == 0 ? MAX_DEPTH : Math.min(depth, MAX_DEPTH);
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(0, 0, millis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+}
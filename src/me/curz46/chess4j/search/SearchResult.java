@@ -0,0 +1,74 @@
+package me.curz46.chess4j.search;
+
+import me.curz46.chess4j.move.Move;
+
+// the outcome of the deepest completed iteration; scores are in centipawns from the side to move's point of view
+public final class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+    private final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long millis, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+    }
+
+    // Move.NONE when the side to move has no legal move
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+
+    // moves until mate, negative when the side to move is being mated
+    public int getMateIn() {
+        if(!isMate()) return 0;
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int[] getPrincipalVariation() {
+        return pv.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("depth ").append(depth)
+                .append(isMate() ? " mate " + getMateIn() : " cp " + score)
+                .append(" nodes ").append(nodes)
+                .append(" time ").append(millis)
+                .append(" pv");
+        for(int move : pv) {
+            builder.append(' ').append(Move.toString(move));
+        }
+        return builder.toString();
+    }
+
+}
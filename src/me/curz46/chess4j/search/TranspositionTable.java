@@ -0,0 +1,128 @@
+package me.curz46.chess4j.search;
+
+import me.curz46.chess4j.move.Move;
+
+import java.util.Arrays;
+
+// fixed-size hash table of search results shared by any number of threads without locking. each bucket holds a
+// depth-preferred slot and an always-replace slot, two longs each: the Zobrist key xor-ed with the data, then the
+// data. a reader only accepts a slot whose halves xor back to its key, so a write torn by a racing store is seen as
+// a miss instead of as another position's result
+public final class TranspositionTable {
+
+    public static final int BOUND_EXACT = 1;
+    // the score is at least the stored one (the search failed high)
+    public static final int BOUND_LOWER = 2;
+    // the score is at most the stored one (the search failed low)
+    public static final int BOUND_UPPER = 3;
+
+    // data layout: move (16 bits) | score (16, signed) | depth (8) | bound (2) | generation (8). the bound is never
+    // zero, so a data value of zero always means an empty slot
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    private final long[] table;
+    private final int mask;
+    private volatile int generation;
+
+    // the bucket count is rounded down to a power of two, so the table may use a little less than requested
+    public TranspositionTable(int megabytes) {
+        if(megabytes < 1) throw new RuntimeException("A TranspositionTable needs at least one megabyte.");
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        // a Java array tops out just below 2^31 elements
+        buckets = Math.min(buckets, 1L << 28);
+        this.table = new long[(int) buckets * LONGS_PER_BUCKET];
+        this.mask = (int) buckets - 1;
+    }
+
+    // returns the data stored for key, or 0 when there is none; unpack it with the static accessors
+    public long probe(long key) {
+        int index = index(key);
+        for(int slot = index; slot < index + LONGS_PER_BUCKET; slot += 2) {
+            long data = table[slot + 1];
+            if(data != 0 && (table[slot] ^ data) == key) return data;
+        }
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = index(key);
+        long deep = table[index + 1];
+        // keep the move of an earlier, shallower result for the same position when this one has none
+        if(move == Move.NONE) {
+            long previous = probe(key);
+            if(previous != 0) move = getMove(previous);
+        }
+        long data = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << SCORE_SHIFT
+                | (long) Math.min(Math.max(depth, 0), 255) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) generation << GENERATION_SHIFT;
+        // the depth-preferred slot is only given up by a result at least as deep, by a stale search or to update
+        // the same position; anything else goes into the always-replace slot
+        int slot = deep == 0
+                || (table[index] ^ deep) == key
+                || getDepth(deep) <= depth
+                || getGeneration(deep) != generation ? index : index + 2;
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    // called once per search so entries from earlier searches lose their claim on the depth-preferred slots
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    // occupied slots from the current search per thousand, sampled over the first thousand buckets
+    public int getUsage() {
+        int buckets = Math.min(1000, mask + 1);
+        int used = 0;
+        for(int bucket = 0; bucket < buckets; bucket++) {
+            for(int slot = 1; slot < LONGS_PER_BUCKET; slot += 2) {
+                long data = table[bucket * LONGS_PER_BUCKET + slot];
+                if(data != 0 && getGeneration(data) == generation) used++;
+            }
+        }
+        return used * 500 / buckets;
+    }
+
+    public int getSizeInBuckets() {
+        return mask + 1;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT & 0xFF);
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT & 3);
+    }
+
+    private static int getGeneration(long data) {
+        return (int) (data >>> GENERATION_SHIFT & 0xFF);
+    }
+
+    private int index(long key) {
+        // the low bits of the key pick the bucket; the whole key is still verified on probe
+        return ((int) key & mask) * LONGS_PER_BUCKET;
+    }
+
+}
@@ -0,0 +1,371 @@
+package me.curz46.chess4j.session;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessBoard.GameStatus;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.record.GameRecord;
+import me.curz46.chess4j.record.GameRecordReader;
+import me.curz46.chess4j.record.GameRecordWriter;
+import me.curz46.chess4j.search.Search;
+import me.curz46.chess4j.search.SearchLimits;
+import me.curz46.chess4j.search.SearchResult;
+import me.curz46.chess4j.search.TranspositionTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// hosts many games at once. calls on one game are serialised by the lock stripe the game hashes to, so unrelated
+// games proceed in parallel without a lock each; engine searches run on virtual threads where the JVM has them, at
+// most one per processor at a time, and share one transposition table.
+// games left alone for longer than the idle time can be hibernated into a binary game record of a few bytes per
+// move, and are replayed transparently on their next use
+public final class GameSessionManager implements Closeable {
+
+    public static final int DEFAULT_STRIPES = 1024;
+    public static final long DEFAULT_IDLE_MILLIS = 60_000;
+    // the batch result for a move that was illegal or named a game that does not exist
+    public static final byte REJECTED = -1;
+    // batches smaller than this are not worth splitting between threads
+    private static final int MIN_CHUNK = 256;
+    // a hibernated game is a handful of bytes plus one per move
+    private static final int RECORD_BUFFER_SIZE = 256;
+    private static final int TABLE_MEGABYTES = 16;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks;
+    private final long idleNanos;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService engine = newEngineExecutor();
+    // searches are CPU-bound, so more running at once than there are processors only costs memory; the rest wait
+    // here holding nothing but their position
+    private final Semaphore searchPermits = new Semaphore(Runtime.getRuntime().availableProcessors());
+    // safe to share between concurrent searches, and searches of the same game reuse each other's results
+    private final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+
+    public GameSessionManager() {
+        this(DEFAULT_STRIPES, DEFAULT_IDLE_MILLIS);
+    }
+
+    // stripes is rounded down to a power of two
+    public GameSessionManager(int stripes, long idleMillis) {
+        if(stripes < 1) throw new RuntimeException("A GameSessionManager needs at least one lock stripe.");
+        locks = new ReentrantLock[Integer.highestOneBit(stripes)];
+        for(int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    public long createGame() {
+        return createGame(null);
+    }
+
+    // fen may be null for the standard starting position
+    public long createGame(String fen) {
+        ChessBoard board = new ChessBoard(Fen.parse(fen == null ? Fen.START_POSITION : fen));
+        long id = nextId.getAndIncrement();
+        sessions.put(id, new Session(board, fen));
+        return id;
+    }
+
+    public boolean removeGame(long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return sessions.remove(id) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasGame(long id) {
+        return sessions.containsKey(id);
+    }
+
+    // plays a packed move (see Move) in the given game, which must be legal there
+    public GameStatus doMove(long id, int move) {
+        return withBoard(id, board -> {
+            if(!board.isLegal(move)) throw new RuntimeException("Illegal move " + Move.toString(move) + " in game " + id + ".");
+            board.doMove(move);
+            return board.getStatus();
+        });
+    }
+
+    public GameStatus getStatus(long id) {
+        return withBoard(id, ChessBoard::getStatus);
+    }
+
+    public String getFen(long id) {
+        return withBoard(id, board -> Fen.toFen(board.getState()));
+    }
+
+    // runs action on the game's board while holding its lock; the board must not escape the action. moves may be
+    // played on it directly, but only moves the board would accept as legal
+    public <T> T withBoard(long id, Function<ChessBoard, T> action) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Session session = sessions.get(id);
+            if(session == null) throw new RuntimeException("There is no game " + id + ".");
+            return action.apply(session.wake());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // plays moves[i] in game ids[i] for every i and writes results[i]: the ordinal of the game's GameStatus after the
+    // move, or REJECTED. moves for the same game are played in the order they appear; with parallel, disjoint parts of
+    // the batch are handled on the common ForkJoinPool
+    public void doMoves(long[] ids, int[] moves, byte[] results, boolean parallel) {
+        processBatch(ids, moves, results, true, parallel);
+    }
+
+    // like doMoves, but only checks each move against the game's current position: results[i] is 1 for a legal move
+    // and REJECTED otherwise, and no game changes
+    public void validateMoves(long[] ids, int[] moves, byte[] results, boolean parallel) {
+        processBatch(ids, moves, results, false, parallel);
+    }
+
+    // checks moves against arbitrary positions rather than hosted games: results[i] is 1 when moves[i] is legal in
+    // fens[i], and REJECTED when it is not or the FEN is invalid. runs of entries with the same FEN share one parse
+    public static void validateMoves(String[] fens, int[] moves, byte[] results, boolean parallel) {
+        int size = fens.length;
+        if(moves.length != size || results.length != size)
+            throw new RuntimeException("Batch arrays must be of equal length.");
+        int chunks = parallel ? Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_CHUNK) : 1;
+        if(chunks <= 1) {
+            validateChunk(fens, 0, size, moves, results);
+            return;
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk -> validateChunk(fens,
+                (int) ((long) size * chunk / chunks), (int) ((long) size * (chunk + 1) / chunks), moves, results));
+    }
+
+    // the batch is ordered by lock stripe (keeping the original order within a stripe), so each stripe is locked once
+    // per run of entries rather than once per entry, and a chunk never shares a stripe with another
+    private void processBatch(long[] ids, int[] moves, byte[] results, boolean play, boolean parallel) {
+        int size = ids.length;
+        if(moves.length != size || results.length != size)
+            throw new RuntimeException("Batch arrays must be of equal length.");
+        long[] order = new long[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = (long) stripeOf(ids[i]) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int chunks = parallel ? Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_CHUNK) : 1;
+        if(chunks <= 1) {
+            processChunk(order, 0, size, ids, moves, results, play);
+            return;
+        }
+        // chunk boundaries move forward to the next change of stripe
+        int[] bounds = new int[chunks + 1];
+        for(int chunk = 1; chunk < chunks; chunk++) {
+            int bound = Math.max(bounds[chunk - 1], (int) ((long) size * chunk / chunks));
+            while(bound > 0 && bound < size && order[bound] >>> 32 == order[bound - 1] >>> 32) {
+                bound++;
+            }
+            bounds[chunk] = bound;
+        }
+        bounds[chunks] = size;
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+                processChunk(order, bounds[chunk], bounds[chunk + 1], ids, moves, results, play));
+    }
+
+    private void processChunk(long[] order, int start, int end, long[] ids, int[] moves, byte[] results,
+                              boolean play) {
+        ReentrantLock held = null;
+        try {
+            for(int i = start; i < end; i++) {
+                int index = (int) order[i];
+                ReentrantLock lock = locks[(int) (order[i] >>> 32)];
+                if(lock != held) {
+                    if(held != null) held.unlock();
+                    lock.lock();
+                    held = lock;
+                }
+                Session session = sessions.get(ids[index]);
+                if(session == null) {
+                    results[index] = REJECTED;
+                    continue;
+                }
+                ChessBoard board = session.wake();
+                int move = moves[index];
+                if(!board.isLegal(move)) {
+                    results[index] = REJECTED;
+                } else if(play) {
+                    board.doMove(move);
+                    results[index] = (byte) board.getStatus().ordinal();
+                } else {
+                    results[index] = 1;
+                }
+            }
+        } finally {
+            if(held != null) held.unlock();
+        }
+    }
+
+    private static void validateChunk(String[] fens, int start, int end, int[] moves, byte[] results) {
+        ChessState state = null;
+        for(int i = start; i < end; i++) {
+            if(i == start || !Objects.equals(fens[i], fens[i - 1])) state = parseOrNull(fens[i]);
+            int move = moves[i];
+            results[i] = state != null && MoveGenerator.isPseudoLegal(state, move) && MoveGenerator.isLegal(state, move)
+                    ? 1 : REJECTED;
+        }
+    }
+
+    private static ChessState parseOrNull(String fen) {
+        if(fen == null) return null;
+        try {
+            return Fen.parse(fen);
+        } catch(RuntimeException e) {
+            return null;
+        }
+    }
+
+    // searches a copy of the game's current position, so the game stays free for other calls while the engine runs
+    public CompletableFuture<SearchResult> search(long id, SearchLimits limits) {
+        ChessState position = withBoard(id, board -> board.getState().copy());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                searchPermits.acquire();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("The search of game " + id + " was cancelled.", e);
+            }
+            try {
+                return new Search(position, table).search(limits);
+            } finally {
+                searchPermits.release();
+            }
+        }, engine);
+    }
+
+    // hibernates every game untouched for longer than the idle time and returns how many were hibernated; meant to
+    // be called periodically by the host
+    public int hibernateIdle() {
+        long now = System.nanoTime();
+        int count = 0;
+        for(Long id : sessions.keySet()) {
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                Session session = sessions.get(id);
+                if(session != null && session.board != null && now - session.lastAccess > idleNanos
+                        && session.hibernate()) {
+                    count++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    public int getGameCount() {
+        return sessions.size();
+    }
+
+    public boolean isHibernated(long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Session session = sessions.get(id);
+            return session != null && session.board == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        engine.shutdownNow();
+    }
+
+    private ReentrantLock lockFor(long id) {
+        return locks[stripeOf(id)];
+    }
+
+    // spreads consecutive ids over the stripes
+    private int stripeOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (locks.length - 1);
+    }
+
+    // one virtual thread per search on Java 21 and later, found reflectively so older JVMs still run the rest
+    private static ExecutorService newEngineExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return Executors.newWorkStealingPool();
+        }
+    }
+
+    // either board (with the FEN it started from) or record is set; only touched under the game's lock
+    private static final class Session {
+
+        private ChessBoard board;
+        private String fen;
+        private byte[] record;
+        private long lastAccess = System.nanoTime();
+
+        private Session(ChessBoard board, String fen) {
+            this.board = board;
+            this.fen = fen;
+        }
+
+        private ChessBoard wake() {
+            lastAccess = System.nanoTime();
+            if(board == null) {
+                GameRecord game = new GameRecordReader(new ByteArrayInputStream(record), record.length).next();
+                board = game.replay();
+                fen = game.getFen();
+                record = null;
+            }
+            return board;
+        }
+
+        // keeps the game awake if it cannot be recorded, e.g. after an unflagged promotion played on the board
+        private boolean hibernate() {
+            ChessState state = board.getState();
+            int[] moves = new int[state.getUndoSize()];
+            for(int ply = 0; ply < moves.length; ply++) {
+                moves[ply] = state.getMove(ply);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(16 + moves.length);
+            try {
+                GameRecordWriter writer = new GameRecordWriter(out, RECORD_BUFFER_SIZE);
+                writer.write(new GameRecord(Collections.emptyMap(), fen, moves, "*"));
+                writer.flush();
+            } catch(RuntimeException e) {
+                return false;
+            }
+            record = out.toByteArray();
+            board = null;
+            fen = null;
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard.GameStatus;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.move.MoveGenerator;
+import me.curz46.chess4j.move.MoveList;
+import me.curz46.chess4j.pgn.San;
+import me.curz46.chess4j.session.GameSessionManager;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// batches of moves over many games: moves for one game are played in order, unknown games and illegal moves are
+// rejected without stopping the batch, and splitting a batch between threads gives the same results
+public class BatchMoves {
+    private static final int GAMES = 64;
+    private static final int ROUNDS = 40;
+
+    public static void main(String[] args) {
+        // so that parallel batches are split between threads even on a single processor
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
+        assert ForkJoinPool.getCommonPoolParallelism() == 4;
+        try(GameSessionManager manager = new GameSessionManager(8, 60_000)) {
+            long game = manager.createGame();
+            long other = manager.createGame();
+            ChessState start = Fen.parse(Fen.START_POSITION);
+            int e4 = San.parse(start, "e4");
+            int nf3 = San.parse(start, "Nf3");
+            int e5 = San.parse(Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"), "e5");
+
+            // e4 is legal for either game now, but e5 only once e4 has been played before it in the same batch
+            long[] ids = {game, other, game, other + 100, other};
+            int[] moves = {e4, nf3, e5, e4, e4};
+            byte[] results = new byte[ids.length];
+            manager.validateMoves(ids, moves, results, false);
+            assert Arrays.equals(results, new byte[] {1, 1, GameSessionManager.REJECTED, GameSessionManager.REJECTED, 1})
+                    : Arrays.toString(results);
+            assert manager.getFen(game).equals(Fen.START_POSITION);
+
+            manager.doMoves(ids, moves, results, false);
+            byte playing = (byte) GameStatus.PLAYING.ordinal();
+            assert Arrays.equals(results, new byte[] {playing, playing, playing, GameSessionManager.REJECTED,
+                    GameSessionManager.REJECTED}) : Arrays.toString(results);
+            assert manager.getFen(game).equals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2")
+                    : manager.getFen(game);
+            assert manager.getFen(other).equals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1")
+                    : manager.getFen(other);
+
+            // positions given directly rather than by game; an invalid FEN rejects its move
+            String[] fens = {Fen.START_POSITION, Fen.START_POSITION, manager.getFen(other), "not a fen", null};
+            GameSessionManager.validateMoves(fens, moves, results, false);
+            assert Arrays.equals(results, new byte[] {1, 1, 1, GameSessionManager.REJECTED, GameSessionManager.REJECTED})
+                    : Arrays.toString(results);
+        }
+
+        // the same random batches, large enough to be split, played serially and in parallel on two managers
+        try(GameSessionManager serial = new GameSessionManager(8, 60_000);
+            GameSessionManager parallel = new GameSessionManager(8, 60_000)) {
+            long[] games = new long[GAMES];
+            ChessState[] positions = new ChessState[GAMES];
+            for(int i = 0; i < GAMES; i++) {
+                games[i] = serial.createGame();
+                assert parallel.createGame() == games[i];
+                positions[i] = Fen.parse(Fen.START_POSITION);
+            }
+            Random random = new Random(46);
+            MoveList legal = new MoveList();
+            int size = GAMES * 16;
+            long[] ids = new long[size];
+            int[] moves = new int[size];
+            byte[] serialResults = new byte[size];
+            byte[] parallelResults = new byte[size];
+            byte[] fenResults = new byte[size];
+            String[] fens = new String[size];
+            for(int round = 0; round < ROUNDS; round++) {
+                for(int i = 0; i < size; i++) {
+                    int index = random.nextInt(GAMES);
+                    ids[i] = games[index];
+                    legal.clear();
+                    MoveGenerator.generateLegal(positions[index], legal);
+                    // a move for the position before this batch, which an earlier entry may since have made illegal
+                    moves[i] = legal.size() == 0 ? 0 : legal.get(random.nextInt(legal.size()));
+                    fens[i] = Fen.toFen(positions[index]);
+                    if(random.nextInt(32) == 0) ids[i] = -ids[i];
+                }
+                serial.validateMoves(ids, moves, serialResults, false);
+                parallel.validateMoves(ids, moves, parallelResults, true);
+                assert Arrays.equals(serialResults, parallelResults) : "validation differs in round " + round;
+                // by position the unknown games are no longer rejected, but every other result agrees
+                for(boolean split : new boolean[] {false, true}) {
+                    GameSessionManager.validateMoves(fens, moves, fenResults, split);
+                    for(int i = 0; i < size; i++) {
+                        assert fenResults[i] == serialResults[i] || ids[i] < 0 : "position " + i + " in round " + round;
+                    }
+                }
+
+                serial.doMoves(ids, moves, serialResults, false);
+                parallel.doMoves(ids, moves, parallelResults, true);
+                assert Arrays.equals(serialResults, parallelResults) : "results differ in round " + round;
+                for(int i = 0; i < GAMES; i++) {
+                    String fen = serial.getFen(games[i]);
+                    assert fen.equals(parallel.getFen(games[i])) : "game " + games[i] + " differs in round " + round;
+                    positions[i] = Fen.parse(fen);
+                }
+            }
+        }
+        System.out.println("passed");
+    }
+}
@@ -0,0 +1,71 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.pgn.San;
+import me.curz46.chess4j.record.GameRecord;
+import me.curz46.chess4j.record.GameRecordReader;
+import me.curz46.chess4j.record.GameRecordWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// games written to a record read back unchanged, and a game that cannot be recorded leaves the stream readable
+public class GameRecords {
+    private static final String OPERA_GAME = "e4 e5 Nf3 d6 d4 Bg4 dxe5 Bxf3 Qxf3 dxe5 Bc4 Nf6 Qb3 Qe7 Nc3 c6 Bg5 b5 "
+            + "Nxb5 cxb5 Bxb5+ Nbd7 O-O-O Rd8 Rxd7 Rxd7 Rd1 Qe6 Bxd7+ Nxd7 Qb8+ Nxb8 Rd8#";
+    private static final String PROMOTION_FEN = "k7/4P3/8/8/8/8/8/4K3 w - - 0 1";
+
+    public static void main(String[] args) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "Morphy, Paul");
+        tags.put("Black", "Duke Karl / Count Isouard");
+        GameRecord opera = new GameRecord(tags, null, moves(null, OPERA_GAME), "1-0");
+        GameRecord promotion = new GameRecord(Collections.emptyMap(), PROMOTION_FEN,
+                moves(PROMOTION_FEN, "e8=Q+ Kb7 Qd7+"), "*");
+        GameRecord empty = new GameRecord(Collections.emptyMap(), null, new int[0], "1/2-1/2");
+
+        // e4 played again by Black; a buffer smaller than one game means bytes would reach the stream mid-game
+        int[] illegal = moves(null, "e4 e5 Nf3");
+        illegal[1] = illegal[0];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(out, 8);
+        writer.write(opera);
+        try {
+            writer.write(new GameRecord(tags, null, illegal, "*"));
+            assert false : "an illegal game was recorded";
+        } catch(RuntimeException expected) {
+        }
+        writer.write(promotion);
+        writer.write(empty);
+        writer.close();
+
+        GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(out.toByteArray()), 8);
+        for(GameRecord game : new GameRecord[] {opera, promotion, empty}) {
+            assert reader.hasNext();
+            GameRecord read = reader.next();
+            assert read.getTags().equals(game.getTags()) : read.getTags();
+            assert read.getFen() == null ? game.getFen() == null : read.getFen().equals(game.getFen()) : read.getFen();
+            assert Arrays.equals(read.getMoves(), game.getMoves()) : read.getMoveCount() + " moves";
+            assert read.getResult().equals(game.getResult()) : read.getResult();
+        }
+        assert !reader.hasNext();
+        reader.close();
+        System.out.println("passed");
+    }
+
+    private static int[] moves(String fen, String sans) {
+        ChessState state = Fen.parse(fen == null ? Fen.START_POSITION : fen);
+        String[] split = sans.split(" ");
+        int[] moves = new int[split.length];
+        for(int i = 0; i < split.length; i++) {
+            moves[i] = San.parse(state, split[i]);
+            state.makeMove(moves[i]);
+        }
+        return moves;
+    }
+}
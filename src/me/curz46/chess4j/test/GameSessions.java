@@ -0,0 +1,70 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard.GameStatus;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.pgn.San;
+import me.curz46.chess4j.search.SearchLimits;
+import me.curz46.chess4j.search.SearchResult;
+import me.curz46.chess4j.session.GameSessionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// a game's life in a GameSessionManager: created, played, hibernated, woken by its next use and removed, plus more
+// engine searches at once than there are processors
+public class GameSessions {
+    private static final String FOOLS_MATE = "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2";
+
+    public static void main(String[] args) throws InterruptedException {
+        try(GameSessionManager manager = new GameSessionManager(16, 0)) {
+            long game = manager.createGame();
+            long other = manager.createGame(FOOLS_MATE);
+            assert game != other && manager.hasGame(game) && manager.getGameCount() == 2;
+
+            for(String san : "f3 e5 g4".split(" ")) {
+                assert manager.doMove(game, move(manager, game, san)) == GameStatus.PLAYING;
+            }
+            assert manager.getFen(game).equals(FOOLS_MATE) : manager.getFen(game);
+            try {
+                manager.doMove(game, move(manager, other, "Qh4#") ^ 1);
+                assert false : "an illegal move was played";
+            } catch(RuntimeException expected) {
+            }
+
+            // with no idle time every game hibernates, and comes back in the same position on its next use
+            Thread.sleep(1);
+            assert manager.hibernateIdle() == 2;
+            assert manager.isHibernated(game) && manager.isHibernated(other);
+            assert manager.getFen(game).equals(FOOLS_MATE) : manager.getFen(game);
+            assert !manager.isHibernated(game) && manager.isHibernated(other);
+            assert manager.getStatus(other) == GameStatus.PLAYING && !manager.isHibernated(other);
+            // a woken game keeps its history, so it can hibernate again
+            Thread.sleep(1);
+            assert manager.hibernateIdle() == 2;
+            assert manager.doMove(game, move(manager, game, "Qh4#")) == GameStatus.WINNER_BLACK;
+
+            int mate = move(manager, other, "Qh4#");
+            List<CompletableFuture<SearchResult>> searches = new ArrayList<>();
+            for(int i = 0; i < Runtime.getRuntime().availableProcessors() * 2 + 2; i++) {
+                searches.add(manager.search(other, SearchLimits.depth(3)));
+            }
+            for(CompletableFuture<SearchResult> search : searches) {
+                assert search.join().getBestMove() == mate;
+            }
+
+            assert manager.removeGame(game) && !manager.hasGame(game) && !manager.removeGame(game);
+            assert manager.getGameCount() == 1;
+            try {
+                manager.getFen(game);
+                assert false : "a removed game was found";
+            } catch(RuntimeException expected) {
+            }
+        }
+        System.out.println("passed");
+    }
+
+    private static int move(GameSessionManager manager, long id, String san) {
+        return manager.withBoard(id, board -> San.parse(board.getState(), san));
+    }
+}
@@ -0,0 +1,78 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessBoard.GameStatus;
+import me.curz46.chess4j.ChessPiece.Queen;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.pgn.San;
+import me.curz46.chess4j.util.Vector2i;
+
+// each status getStatus can report, including the draws decided by material and by the move counters
+public class GameStatuses {
+    public static void main(String[] args) {
+        check("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", GameStatus.WINNER_BLACK);
+        check("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", GameStatus.STALEMATE);
+        check("4k3/8/8/8/8/8/4R3/4K3 b - - 0 1", GameStatus.CHECK);
+        check("4k3/8/8/8/8/8/8/4K3 w - - 0 1", GameStatus.INSUFFICIENT_MATERIAL);
+        check("4k3/8/8/8/8/8/8/2N1K3 w - - 0 1", GameStatus.INSUFFICIENT_MATERIAL);
+        check("2b1k3/8/8/8/8/8/8/3BK3 w - - 0 1", GameStatus.INSUFFICIENT_MATERIAL);
+        check("3bk3/8/8/8/8/8/8/3BK3 w - - 0 1", GameStatus.PLAYING);
+        check("4k3/8/8/8/8/8/8/1NN1K3 w - - 0 1", GameStatus.PLAYING);
+        check("4k3/8/8/8/8/8/8/R3K3 w - - 99 80", GameStatus.PLAYING);
+        check("4k3/8/8/8/8/8/8/R3K3 w - - 100 80", GameStatus.FIFTY_MOVE_RULE);
+        check("4k3/8/8/8/8/8/8/R3K3 w - - 150 100", GameStatus.SEVENTY_FIVE_MOVE_RULE);
+        // checkmate on the move that reaches the seventy-five move limit still wins
+        check("4k3/R7/4K3/8/8/8/8/8 w - - 149 100", GameStatus.FIFTY_MOVE_RULE);
+        ChessBoard board = new ChessBoard(Fen.parse("4k3/R7/4K3/8/8/8/8/8 w - - 149 100"));
+        board.doMove(Player.WHITE, Vector2i.a7, Vector2i.a8);
+        assert board.getStatus() == GameStatus.WINNER_WHITE : board.getStatus();
+
+        // promoting through replacePiece, after the attack maps were last asked for, still gives check
+        board = new ChessBoard(Fen.parse("k7/4P3/8/8/8/8/8/4K3 w - - 0 1"));
+        board.doMove(Player.WHITE, Vector2i.e7, Vector2i.e8);
+        assert board.getStatus() == GameStatus.PLAYING : board.getStatus();
+        ChessState state = board.getState();
+        state.replacePiece(state.getPiece(Vector2i.e8), new Queen(Player.WHITE, Vector2i.e8, true));
+        assert board.getStatus() == GameStatus.CHECK : board.getStatus();
+        // and taking the move back brings the pawn back, the game's move now reading as a promotion
+        assert state.getMove(0) == San.parse(Fen.parse("k7/4P3/8/8/8/8/8/4K3 w - - 0 1"), "e8=Q+");
+        state.unmakeMove();
+        assert Fen.toFen(state).equals("k7/4P3/8/8/8/8/8/4K3 w - - 0 1") : Fen.toFen(state);
+
+        // knights out and back: the starting position for the third and then the fifth time
+        board = new ChessBoard();
+        shuffle(board, 2, "Nf3 Nf6 Ng1 Ng8");
+        assert board.getRepetitionCount() == 3 && board.getStatus() == GameStatus.THREEFOLD_REPETITION : board.getStatus();
+        shuffle(board, 1, "Nf3 Nf6 Ng1 Ng8");
+        assert board.getRepetitionCount() == 4 && board.getStatus() == GameStatus.THREEFOLD_REPETITION : board.getStatus();
+        shuffle(board, 1, "Nc3 Nc6 Nb1 Nb8");
+        assert board.getRepetitionCount() == 5 && board.getStatus() == GameStatus.FIVEFOLD_REPETITION : board.getStatus();
+
+        // a check repeated three times is still reported as check, but five times ends the game
+        board = new ChessBoard(Fen.parse("4k3/8/8/8/8/8/4R3/4K3 b - - 0 1"));
+        shuffle(board, 2, "Kd8 Rd2+ Ke8 Re2+");
+        assert board.getRepetitionCount() == 3 && board.getStatus() == GameStatus.CHECK : board.getStatus();
+        shuffle(board, 2, "Kd8 Rd2+ Ke8 Re2+");
+        assert board.getRepetitionCount() == 5 && board.getStatus() == GameStatus.FIVEFOLD_REPETITION : board.getStatus();
+        System.out.println("passed");
+    }
+
+    private static void shuffle(ChessBoard board, int times, String moves) {
+        for(int i = 0; i < times; i++) {
+            for(String san : moves.split(" ")) {
+                board.doMove(San.parse(board.getState(), san));
+            }
+        }
+    }
+
+    private static void check(String fen, GameStatus expected) {
+        ChessBoard board = new ChessBoard(Fen.parse(fen));
+        GameStatus status = board.getStatus();
+        assert status == expected : fen + ": " + status;
+        // the answer is the same once the legal moves are cached
+        board.getAllValidMoves();
+        assert board.getStatus() == status : fen;
+    }
+}
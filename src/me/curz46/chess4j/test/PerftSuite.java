@@ -0,0 +1,61 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.perft.ParallelPerft;
+import me.curz46.chess4j.perft.Perft;
+import me.curz46.chess4j.perft.PerftTable;
+
+import java.util.concurrent.ForkJoinPool;
+
+// positions and node counts from the standard perft suite (chessprogramming.org/Perft_Results)
+public class PerftSuite {
+    public static void main(String[] args) {
+        check(Fen.START_POSITION, 20, 400, 8902, 197281, 4865609);
+        // "kiwipete": castling, en passant, promotions and pins
+        check("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2039, 97862, 4085603);
+        check("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238, 674624);
+        check("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467, 422333);
+        check("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379, 2103487);
+        check("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890, 3894594);
+        // rights without their King and Rook at home are dropped rather than letting a castle move a missing piece
+        check("4k3/8/8/8/8/8/8/4K3 w KQkq - 0 1", 5, 25, 170);
+        assert Fen.toFen(Fen.parse("r3k3/8/8/8/8/8/8/4K2R w KQkq - 0 1")).equals("r3k3/8/8/8/8/8/8/4K2R w Kq - 0 1");
+        // an en passant square can only be behind a pawn that has just moved two squares
+        rejects("4k3/8/8/3pP3/8/8/8/4K3 w - d5 0 1");
+        rejects("4k3/8/8/3pP3/8/8/8/4K3 w - d3 0 1");
+        rejects("4k3/8/8/8/3Pp3/8/8/4K3 b - d6 0 1");
+        rejects("4k3/8/8/3NP3/8/8/8/4K3 w - d6 0 1");
+        rejects("4k3/8/8/4P3/8/8/8/4K3 w - d6 0 1");
+        rejects("4k3/3p4/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        // positions no game could reach
+        rejects("2QQ2Qk/Q4Q2/3Q3Q/1Q5Q/4Q2Q/2Q4Q/Q6Q/K1QQ1QQQ w - - 0 1");
+        rejects("4k3/8/8/8/8/8/8/8 w - - 0 1");
+        rejects("4k3/8/8/8/8/8/8/3KK3 w - - 0 1");
+        rejects("4k3/8/8/8/8/8/PPPPPPPP/P3K3 w - - 0 1");
+        rejects("P3k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        rejects("4k3/8/8/8/8/8/8/p3K3 w - - 0 1");
+        assert Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getEnPassantSquare() == 43;
+        // split across threads and sharing a transposition table must not change any count
+        ParallelPerft parallel = new ParallelPerft(new ForkJoinPool(4), new PerftTable(16));
+        long nodes = parallel.perft(Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"), 4);
+        assert nodes == 4085603 : "parallel kiwipete depth 4: " + nodes;
+        parallel.shutdown();
+        System.out.println("passed");
+    }
+
+    private static void check(String fen, long... expected) {
+        for(int depth = 1; depth <= expected.length; depth++) {
+            long nodes = Perft.perft(Fen.parse(fen), depth);
+            assert nodes == expected[depth - 1] : fen + " depth " + depth + ": " + nodes + " != " + expected[depth - 1];
+        }
+    }
+
+    private static void rejects(String fen) {
+        try {
+            Fen.parse(fen);
+        } catch(RuntimeException e) {
+            return;
+        }
+        throw new AssertionError("accepted " + fen);
+    }
+}
@@ -0,0 +1,54 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.pgn.PgnGame;
+import me.curz46.chess4j.pgn.PgnReader;
+import me.curz46.chess4j.pgn.San;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+// the Opera Game, with the clutter real PGN files contain, must decode and replay to White's mate
+public class PgnReplay {
+    private static final String PGN = "[Event \"Paris\"]\n"
+            + "[White \"Morphy, Paul\"]\n"
+            + "[Black \"Duke Karl / Count Isouard\"]\n"
+            + "[Result \"1-0\"]\n\n"
+            + "1.e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move already.} 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6\n"
+            + "7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 $2 (9... Qb4+ 10. Qxb4) 10. Nxb5 cxb5 11. Bxb5+ Nbd7\n"
+            + "12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n\n"
+            + "[Event \"Unfinished\"]\n\n1. e4 e5 2. Ke3 *\n";
+
+    private static final String MOVES = "e4 e5 Nf3 d6 d4 Bg4 dxe5 Bxf3 Qxf3 dxe5 Bc4 Nf6 Qb3 Qe7 Nc3 c6 Bg5 b5 Nxb5 cxb5 "
+            + "Bxb5+ Nbd7 O-O-O Rd8 Rxd7 Rxd7 Rd1 Qe6 Bxd7+ Nxd7 Qb8+ Nxb8 Rd8#";
+
+    public static void main(String[] args) {
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(PGN.getBytes(StandardCharsets.UTF_8))));
+        PgnGame game = reader.next();
+        assert game.isValid() : game.getError();
+        assert game.getTag("Black").equals("Duke Karl / Count Isouard");
+        assert game.getResult().equals("1-0");
+        assert game.getMoveCount() == 33;
+
+        ChessBoard board = game.replay();
+        assert board.getStatus() == ChessBoard.GameStatus.WINNER_WHITE;
+
+        // writing the moves back out gives the same SAN
+        ChessState state = game.getStartPosition();
+        String[] sans = MOVES.split(" ");
+        for(int i = 0; i < game.getMoveCount(); i++) {
+            assert San.toSan(state, game.getMove(i)).equals(sans[i]) : sans[i];
+            state.makeMove(game.getMove(i));
+        }
+
+        // an illegal move ends the game's moves but not the stream
+        PgnGame broken = reader.next();
+        assert !broken.isValid() && broken.getMoveCount() == 2 : broken.getError();
+        assert !reader.hasNext();
+        reader.close();
+        System.out.println("passed");
+    }
+}
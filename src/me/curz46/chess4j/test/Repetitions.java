@@ -0,0 +1,49 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.pgn.San;
+
+// a position only repeats with the same side to move, castling rights and en passant square, and never across a
+// capture or pawn move
+public class Repetitions {
+    public static void main(String[] args) {
+        ChessBoard board = new ChessBoard(Fen.parse(Fen.START_POSITION));
+        assert board.getRepetitionCount() == 1;
+        play(board, "Nf3", "Nf6", "Ng1", "Ng8");
+        assert board.getRepetitionCount() == 2;
+        play(board, "Nf3", "Nf6", "Ng1", "Ng8");
+        assert board.getRepetitionCount() == 3;
+        // a copy keeps the history it needs
+        assert board.getState().copy().getRepetitionCount() == 3;
+
+        // pawn moves reset the halfmove clock, so the shuffles before them no longer count
+        play(board, "e4", "e5");
+        assert board.getRepetitionCount() == 1;
+        play(board, "Nf3", "Nf6", "Ng1", "Ng8");
+        assert board.getRepetitionCount() == 2;
+
+        // the same placement after the Rooks have moved has lost its castling rights, so it is a new position
+        board = new ChessBoard(Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1"));
+        play(board, "Rg1", "Rg8", "Rh1", "Rh8");
+        assert board.getRepetitionCount() == 1;
+        play(board, "Rg1", "Rg8", "Rh1", "Rh8");
+        assert board.getRepetitionCount() == 2;
+
+        // the position straight after a double push differs from the same placement once en passant has lapsed
+        board = new ChessBoard(Fen.parse("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1"));
+        play(board, "e4");
+        assert board.getState().getEnPassantSquare() != -1;
+        play(board, "Ke7", "Ke2", "Ke8", "Ke1");
+        assert board.getRepetitionCount() == 1;
+        play(board, "Ke7", "Ke2", "Ke8", "Ke1");
+        assert board.getRepetitionCount() == 2;
+        System.out.println("passed");
+    }
+
+    private static void play(ChessBoard board, String... moves) {
+        for(String move : moves) {
+            board.doMove(San.parse(board.getState(), move));
+        }
+    }
+}
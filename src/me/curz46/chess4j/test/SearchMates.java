@@ -0,0 +1,30 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.move.Move;
+import me.curz46.chess4j.search.Search;
+import me.curz46.chess4j.search.SearchLimits;
+import me.curz46.chess4j.search.SearchResult;
+
+// the search must find the forced mate and leave the position as it found it
+public class SearchMates {
+    public static void main(String[] args) {
+        check("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1", 2, "d5f6");
+        check("6k1/pp4p1/2p5/2bp4/8/P5Pb/1P3rrP/2BRRN1K b - - 0 1", 2, "g2g1");
+        check("r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1", 3, "f8c5");
+        // stalemate and checkmate positions have no move to return
+        assert Search.search(Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), SearchLimits.depth(4)).getBestMove()
+                == Move.NONE;
+        System.out.println("passed");
+    }
+
+    private static void check(String fen, int mateIn, String bestMove) {
+        ChessState state = Fen.parse(fen);
+        long key = state.getKey();
+        SearchResult result = Search.search(state, SearchLimits.depth(mateIn * 2));
+        assert result.getMateIn() == mateIn : fen + ": " + result;
+        assert Move.toString(result.getBestMove()).equals(bestMove) : fen + ": " + result;
+        assert state.getKey() == key && state.getUndoSize() == 0 : fen + ": position was not restored";
+    }
+}
@@ -0,0 +1,78 @@
+package me.curz46.chess4j.test;
+
+import me.curz46.chess4j.ChessBoard;
+import me.curz46.chess4j.ChessPiece.PieceType;
+import me.curz46.chess4j.ChessState;
+import me.curz46.chess4j.Fen;
+import me.curz46.chess4j.Player;
+import me.curz46.chess4j.PositionSnapshot;
+import me.curz46.chess4j.pgn.San;
+import me.curz46.chess4j.util.Vector2i;
+
+import java.util.List;
+
+// the published snapshot follows the board through every doMove and undoMove: same position, key, history and
+// repetition count, and a history no longer than the game
+public class Snapshots {
+    private static final String MOVES = "e4 Nf6 e5 d5 exd6 Nc6 Nf3 Bg4 Bc4 Qd7 O-O O-O-O Ng5 Nh5 Nf3 Nf6 Ng5 Nh5 Nf3 "
+            + "Nf6 Ng5 Nh5";
+
+    public static void main(String[] args) {
+        ChessBoard board = new ChessBoard();
+        check(board);
+        int repetitions = 0;
+        for(String san : MOVES.split(" ")) {
+            board.doMove(San.parse(board.getState(), san));
+            check(board);
+            repetitions = Math.max(repetitions, board.getSnapshot().getRepetitionCount());
+        }
+        assert repetitions == 3 : repetitions;
+        while(board.getState().getUndoSize() > 0) {
+            board.undoMove();
+            check(board);
+        }
+        assert board.getSnapshot().getPrevious() == null && board.getSnapshot().toFen().equals(Fen.START_POSITION);
+        try {
+            board.undoMove();
+            assert false : "a move was taken back from the starting position";
+        } catch(RuntimeException expected) {
+        }
+
+        // a promotion left to promote appears in the snapshot as soon as it is made, as part of the same move
+        board = new ChessBoard(Fen.parse("k7/4P3/8/8/8/8/8/4K3 w - - 0 1"));
+        board.doMove(Player.WHITE, Vector2i.e7, Vector2i.e8);
+        check(board);
+        board.promote(PieceType.QUEEN);
+        check(board);
+        assert board.getSnapshot().getPly() == 1 && board.getSnapshot().toFen().equals("k3Q3/8/8/8/8/8/8/4K3 b - - 0 1");
+        board.undoMove();
+        check(board);
+        assert board.getSnapshot().toFen().equals("k7/4P3/8/8/8/8/8/4K3 w - - 0 1");
+
+        // playing a move and taking it back, as a benchmark does, leaves nothing behind
+        board = new ChessBoard();
+        ChessState state = board.getState();
+        int move = San.parse(state, "Nf3");
+        for(int i = 0; i < 100_000; i++) {
+            board.doMove(move);
+            board.undoMove();
+        }
+        assert board.getSnapshot().getPly() == 0 && state.getUndoSize() == 0;
+        check(board);
+        System.out.println("passed");
+    }
+
+    private static void check(ChessBoard board) {
+        ChessState state = board.getState();
+        PositionSnapshot snapshot = board.getSnapshot();
+        assert snapshot.toFen().equals(Fen.toFen(state)) : snapshot.toFen() + " != " + Fen.toFen(state);
+        assert snapshot.getKey() == state.getKey();
+        assert snapshot.getPly() == state.getUndoSize() : snapshot.getPly();
+        assert snapshot.getRepetitionCount() == board.getRepetitionCount() : snapshot.getRepetitionCount();
+        List<PositionSnapshot> history = snapshot.getHistory();
+        assert history.size() == state.getUndoSize() + 1 && history.get(history.size() - 1) == snapshot;
+        for(int ply = 0; ply < state.getUndoSize(); ply++) {
+            assert history.get(ply + 1).getMove() == state.getMove(ply) : "ply " + ply;
+        }
+    }
+}
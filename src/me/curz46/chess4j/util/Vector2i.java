@@ -1,78 +1,103 @@
 package me.curz46.chess4j.util;
 
-public class Vector2i {
-    public static final Vector2i a1 = new Vector2i(0, 0);
-    public static final Vector2i a2 = new Vector2i(0, 1);
-    public static final Vector2i a3 = new Vector2i(0, 2);
-    public static final Vector2i a4 = new Vector2i(0, 3);
-    public static final Vector2i a5 = new Vector2i(0, 4);
-    public static final Vector2i a6 = new Vector2i(0, 5);
-    public static final Vector2i a7 = new Vector2i(0, 6);
-    public static final Vector2i a8 = new Vector2i(0, 7);
-    public static final Vector2i b1 = new Vector2i(1, 0);
-    public static final Vector2i b2 = new Vector2i(1, 1);
-    public static final Vector2i b3 = new Vector2i(1, 2);
-    public static final Vector2i b4 = new Vector2i(1, 3);
-    public static final Vector2i b5 = new Vector2i(1, 4);
-    public static final Vector2i b6 = new Vector2i(1, 5);
-    public static final Vector2i b7 = new Vector2i(1, 6);
-    public static final Vector2i b8 = new Vector2i(1, 7);
-    public static final Vector2i c1 = new Vector2i(2, 0);
-    public static final Vector2i c2 = new Vector2i(2, 1);
-    public static final Vector2i c3 = new Vector2i(2, 2);
-    public static final Vector2i c4 = new Vector2i(2, 3);
-    public static final Vector2i c5 = new Vector2i(2, 4);
-    public static final Vector2i c6 = new Vector2i(2, 5);
-    public static final Vector2i c7 = new Vector2i(2, 6);
-    public static final Vector2i c8 = new Vector2i(2, 7);
-    public static final Vector2i d1 = new Vector2i(3, 0);
-    public static final Vector2i d2 = new Vector2i(3, 1);
-    public static final Vector2i d3 = new Vector2i(3, 2);
-    public static final Vector2i d4 = new Vector2i(3, 3);
-    public static final Vector2i d5 = new Vector2i(3, 4);
-    public static final Vector2i d6 = new Vector2i(3, 5);
-    public static final Vector2i d7 = new Vector2i(3, 6);
-    public static final Vector2i d8 = new Vector2i(3, 7);
-    public static final Vector2i e1 = new Vector2i(4, 0);
-    public static final Vector2i e2 = new Vector2i(4, 1);
-    public static final Vector2i e3 = new Vector2i(4, 2);
-    public static final Vector2i e4 = new Vector2i(4, 3);
-    public static final Vector2i e5 = new Vector2i(4, 4);
-    public static final Vector2i e6 = new Vector2i(4, 5);
-    public static final Vector2i e7 = new Vector2i(4, 6);
-    public static final Vector2i e8 = new Vector2i(4, 7);
-    public static final Vector2i f1 = new Vector2i(5, 0);
-    public static final Vector2i f2 = new Vector2i(5, 1);
-    public static final Vector2i f3 = new Vector2i(5, 2);
-    public static final Vector2i f4 = new Vector2i(5, 3);
-    public static final Vector2i f5 = new Vector2i(5, 4);
-    public static final Vector2i f6 = new Vector2i(5, 5);
-    public static final Vector2i f7 = new Vector2i(5, 6);
-    public static final Vector2i f8 = new Vector2i(5, 7);
-    public static final Vector2i g1 = new Vector2i(6, 0);
-    public static final Vector2i g2 = new Vector2i(6, 1);
-    public static final Vector2i g3 = new Vector2i(6, 2);
-    public static final Vector2i g4 = new Vector2i(6, 3);
-    public static final Vector2i g5 = new Vector2i(6, 4);
-    public static final Vector2i g6 = new Vector2i(6, 5);
-    public static final Vector2i g7 = new Vector2i(6, 6);
-    public static final Vector2i g8 = new Vector2i(6, 7);
-    public static final Vector2i h1 = new Vector2i(7, 0);
-    public static final Vector2i h2 = new Vector2i(7, 1);
-    public static final Vector2i h3 = new Vector2i(7, 2);
-    public static final Vector2i h4 = new Vector2i(7, 3);
-    public static final Vector2i h5 = new Vector2i(7, 4);
-    public static final Vector2i h6 = new Vector2i(7, 5);
-    public static final Vector2i h7 = new Vector2i(7, 6);
-    public static final Vector2i h8 = new Vector2i(7, 7);
+public final class Vector2i {
+
+    // every vector with both coordinates in -7..7 is interned: that covers all squares and the difference between any
+    // two squares, so coordinate work on the board allocates nothing and interned vectors compare by reference
+    private static final int RANGE = 7;
+    private static final int SIDE = 2 * RANGE + 1;
+    private static final Vector2i[] CACHE = new Vector2i[SIDE * SIDE];
+    // indexed by square (y * 8 + x)
+    private static final Vector2i[] SQUARES = new Vector2i[64];
+
+    static {
+        for(int x = -RANGE; x <= RANGE; x++) {
+            for(int y = -RANGE; y <= RANGE; y++) {
+                CACHE[(x + RANGE) * SIDE + y + RANGE] = new Vector2i(x, y);
+            }
+        }
+        for(int square = 0; square < 64; square++) {
+            SQUARES[square] = from(square & 7, square >>> 3);
+        }
+    }
+
+    public static final Vector2i a1 = from(0, 0);
+    public static final Vector2i a2 = from(0, 1);
+    public static final Vector2i a3 = from(0, 2);
+    public static final Vector2i a4 = from(0, 3);
+    public static final Vector2i a5 = from(0, 4);
+    public static final Vector2i a6 = from(0, 5);
+    public static final Vector2i a7 = from(0, 6);
+    public static final Vector2i a8 = from(0, 7);
+    public static final Vector2i b1 = from(1, 0);
+    public static final Vector2i b2 = from(1, 1);
+    public static final Vector2i b3 = from(1, 2);
+    public static final Vector2i b4 = from(1, 3);
+    public static final Vector2i b5 = from(1, 4);
+    public static final Vector2i b6 = from(1, 5);
+    public static final Vector2i b7 = from(1, 6);
+    public static final Vector2i b8 = from(1, 7);
+    public static final Vector2i c1 = from(2, 0);
+    public static final Vector2i c2 = from(2, 1);
+    public static final Vector2i c3 = from(2, 2);
+    public static final Vector2i c4 = from(2, 3);
+    public static final Vector2i c5 = from(2, 4);
+    public static final Vector2i c6 = from(2, 5);
+    public static final Vector2i c7 = from(2, 6);
+    public static final Vector2i c8 = from(2, 7);
+    public static final Vector2i d1 = from(3, 0);
+    public static final Vector2i d2 = from(3, 1);
+    public static final Vector2i d3 = from(3, 2);
+    public static final Vector2i d4 = from(3, 3);
+    public static final Vector2i d5 = from(3, 4);
+    public static final Vector2i d6 = from(3, 5);
+    public static final Vector2i d7 = from(3, 6);
+    public static final Vector2i d8 = from(3, 7);
+    public static final Vector2i e1 = from(4, 0);
+    public static final Vector2i e2 = from(4, 1);
+    public static final Vector2i e3 = from(4, 2);
+    public static final Vector2i e4 = from(4, 3);
+    public static final Vector2i e5 = from(4, 4);
+    public static final Vector2i e6 = from(4, 5);
+    public static final Vector2i e7 = from(4, 6);
+    public static final Vector2i e8 = from(4, 7);
+    public static final Vector2i f1 = from(5, 0);
+    public static final Vector2i f2 = from(5, 1);
+    public static final Vector2i f3 = from(5, 2);
+    public static final Vector2i f4 = from(5, 3);
+    public static final Vector2i f5 = from(5, 4);
+    public static final Vector2i f6 = from(5, 5);
+    public static final Vector2i f7 = from(5, 6);
+    public static final Vector2i f8 = from(5, 7);
+    public static final Vector2i g1 = from(6, 0);
+    public static final Vector2i g2 = from(6, 1);
+    public static final Vector2i g3 = from(6, 2);
+    public static final Vector2i g4 = from(6, 3);
+    public static final Vector2i g5 = from(6, 4);
+    public static final Vector2i g6 = from(6, 5);
+    public static final Vector2i g7 = from(6, 6);
+    public static final Vector2i g8 = from(6, 7);
+    public static final Vector2i h1 = from(7, 0);
+    public static final Vector2i h2 = from(7, 1);
+    public static final Vector2i h3 = from(7, 2);
+    public static final Vector2i h4 = from(7, 3);
+    public static final Vector2i h5 = from(7, 4);
+    public static final Vector2i h6 = from(7, 5);
+    public static final Vector2i h7 = from(7, 6);
+    public static final Vector2i h8 = from(7, 7);
 
     private final int x;
     private final int y;
 
     public static Vector2i from(int x, int y) {
+        if(x >= -RANGE && x <= RANGE && y >= -RANGE && y <= RANGE) return CACHE[(x + RANGE) * SIDE + y + RANGE];
         return new Vector2i(x, y);
     }
 
+    public static Vector2i of(int square) {
+        return SQUARES[square];
+    }
+
     private Vector2i(int x, int y) {
         this.x = x;
         this.y = y;
@@ -86,20 +111,25 @@ public class Vector2i {
         return y;
     }
 
+    // the 0..63 square index; only meaningful for vectors on the board
+    public int getSquare() {
+        return y << 3 | x;
+    }
+
     public Vector2i add(Vector2i v) {
-        return new Vector2i(x + v.x, y + v.y);
+        return from(x + v.x, y + v.y);
     }
 
     public Vector2i add(int x, int y) {
-        return new Vector2i(this.x + x, this.y + y);
+        return from(this.x + x, this.y + y);
     }
 
     public Vector2i sub(Vector2i v) {
-        return new Vector2i(x - v.x, y - v.y);
+        return from(x - v.x, y - v.y);
     }
 
     public Vector2i sub(int x, int y) {
-        return new Vector2i(this.x - x, this.y - y);
+        return from(this.x - x, this.y - y);
     }
 
     public double distance(Vector2i v) {
@@ -108,8 +138,16 @@ public class Vector2i {
 
     @Override
     public boolean equals(Object obj) {
+        if(obj == this)
+            return true;
         if(!(obj instanceof Vector2i))
             return false;
         return ((Vector2i) obj).getX() == x && ((Vector2i) obj).getY() == y;
     }
+
+    // equal to the square index for vectors on the board
+    @Override
+    public int hashCode() {
+        return (y << 3) + x;
+    }
 }